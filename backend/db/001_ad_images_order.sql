@@ -0,0 +1,27 @@
+-- Position des images d'annonce (Ad.images, @OrderColumn image_order).
+--
+-- À exécuter une fois sur PostgreSQL avant de déployer la version qui mappe
+-- image_order : Hibernate refuse de charger une liste dont l'index est NULL,
+-- et ddl-auto ne sait pas remplir les lignes existantes.
+--
+--   psql "$DATABASE_URL" -v ON_ERROR_STOP=1 -f db/001_ad_images_order.sql
+--
+-- L'ordre d'origine n'était pas enregistré : l'ordre physique des lignes
+-- (ctid, en pratique l'ordre d'insertion) est la meilleure approximation.
+
+BEGIN;
+
+ALTER TABLE ad_images ADD COLUMN IF NOT EXISTS image_order integer;
+
+UPDATE ad_images i
+SET image_order = o.position
+FROM (
+    SELECT ctid, row_number() OVER (PARTITION BY ad_id ORDER BY ctid) - 1 AS position
+    FROM ad_images
+) o
+WHERE i.ctid = o.ctid
+  AND i.image_order IS NULL;
+
+ALTER TABLE ad_images ALTER COLUMN image_order SET NOT NULL;
+
+COMMIT;
@@ -0,0 +1,78 @@
+-- Objets de recherche PostgreSQL que Hibernate ne sait pas générer
+-- (ddl-auto ne gère que les tables et colonnes mappées) :
+-- - colonne search_vector (titre pondéré A, description B) + index GIN
+-- - extension pg_trgm + index trigramme sur lower(title) pour les LIKE '%...%'
+--
+-- Script idempotent, à exécuter hors transaction (CREATE INDEX CONCURRENTLY
+-- et les COMMIT du remplissage l'interdisent), donc sans l'option -1 :
+--
+--   psql "$DATABASE_URL" -v ON_ERROR_STOP=1 -f db/002_search_schema.sql
+--
+-- Verrous : l'ajout de la colonne (sans valeur par défaut, donc sans
+-- réécriture de la table) et la pose du trigger ne prennent qu'un verrou
+-- bref, borné par lock_timeout. Le remplissage avance par lots validés un à
+-- un et les index sont construits en CONCURRENTLY : les écritures sur ads
+-- ne sont jamais bloquées pendant la durée du parcours.
+--
+-- Si une construction CONCURRENTLY échoue, l'index reste INVALID et
+-- IF NOT EXISTS ne le reconstruira pas : le supprimer avec
+-- DROP INDEX CONCURRENTLY avant de relancer le script. L'application
+-- n'utilise que des index valides.
+--
+-- La configuration 'french' doit correspondre à
+-- ads.search.full-text.text-search-config (ADS_SEARCH_TEXT_SEARCH_CONFIG).
+
+\set ON_ERROR_STOP on
+SET lock_timeout = '5s';
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Bases où l'application créait elle-même une colonne générée : déjà
+-- remplie et tenue à jour, seuls les index restent à vérifier
+SELECT EXISTS (
+    SELECT 1 FROM information_schema.columns
+    WHERE table_schema = current_schema() AND table_name = 'ads'
+      AND column_name = 'search_vector' AND is_generated = 'ALWAYS'
+) AS generated_search_vector \gset
+
+\if :generated_search_vector
+\echo 'ads.search_vector is a generated column, skipping trigger and backfill'
+\else
+ALTER TABLE ads ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+CREATE OR REPLACE FUNCTION ads_search_vector_update() RETURNS trigger AS $$
+BEGIN
+    NEW.search_vector :=
+        setweight(to_tsvector('french', coalesce(NEW.title, '')), 'A')
+        || setweight(to_tsvector('french', coalesce(NEW.description, '')), 'B');
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS ads_search_vector_update ON ads;
+CREATE TRIGGER ads_search_vector_update
+    BEFORE INSERT OR UPDATE OF title, description ON ads
+    FOR EACH ROW EXECUTE FUNCTION ads_search_vector_update();
+
+-- Lots de 5000 lignes, chacun dans sa propre transaction
+DO $$
+DECLARE
+    updated integer;
+BEGIN
+    LOOP
+        UPDATE ads
+        SET search_vector = setweight(to_tsvector('french', coalesce(title, '')), 'A')
+                || setweight(to_tsvector('french', coalesce(description, '')), 'B')
+        WHERE id IN (SELECT id FROM ads WHERE search_vector IS NULL LIMIT 5000);
+        GET DIAGNOSTICS updated = ROW_COUNT;
+        EXIT WHEN updated = 0;
+        COMMIT;
+    END LOOP;
+END
+$$;
+\endif
+
+RESET lock_timeout;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_ads_search_vector ON ads USING GIN (search_vector);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_ads_title_trgm ON ads USING GIN (lower(title) gin_trgm_ops);
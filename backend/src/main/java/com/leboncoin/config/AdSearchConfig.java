@@ -0,0 +1,9 @@
+package com.leboncoin.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(AdSearchProperties.class)
+public class AdSearchConfig {
+}
@@ -0,0 +1,184 @@
+package com.leboncoin.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "ads.search")
+public class AdSearchProperties {
+
+    // Taille de page maximale acceptée par /api/ads/search (offset et curseur)
+    private int maxPageSize = 100;
+    private Cache cache = new Cache();
+    private FullText fullText = new FullText();
+    private Facets facets = new Facets();
+    private Index index = new Index();
+
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+
+    public void setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public void setCache(Cache cache) {
+        this.cache = cache;
+    }
+
+    public FullText getFullText() {
+        return fullText;
+    }
+
+    public void setFullText(FullText fullText) {
+        this.fullText = fullText;
+    }
+
+    public Facets getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Facets facets) {
+        this.facets = facets;
+    }
+
+    public Index getIndex() {
+        return index;
+    }
+
+    public void setIndex(Index index) {
+        this.index = index;
+    }
+
+    public static class Cache {
+
+        private boolean enabled = true;
+        private long maximumSize = 1000;
+        // Doit rester bien inférieur à la durée de validité des URLs présignées
+        private Duration ttl = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    public static class FullText {
+
+        private boolean enabled = true;
+        private String textSearchConfig = "french";
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getTextSearchConfig() {
+            return textSearchConfig;
+        }
+
+        public void setTextSearchConfig(String textSearchConfig) {
+            this.textSearchConfig = textSearchConfig;
+        }
+    }
+
+    public static class Facets {
+
+        private List<Integer> priceBounds = new ArrayList<>(List.of(50, 100, 500, 1000, 5000, 10000));
+        private int maxPriceBounds = 20;
+        private boolean summaryEnabled = true;
+        private Duration summaryRefresh = Duration.ofMinutes(10);
+
+        public List<Integer> getPriceBounds() {
+            return priceBounds;
+        }
+
+        public void setPriceBounds(List<Integer> priceBounds) {
+            this.priceBounds = priceBounds;
+        }
+
+        public int getMaxPriceBounds() {
+            return maxPriceBounds;
+        }
+
+        public void setMaxPriceBounds(int maxPriceBounds) {
+            this.maxPriceBounds = maxPriceBounds;
+        }
+
+        public boolean isSummaryEnabled() {
+            return summaryEnabled;
+        }
+
+        public void setSummaryEnabled(boolean summaryEnabled) {
+            this.summaryEnabled = summaryEnabled;
+        }
+
+        public Duration getSummaryRefresh() {
+            return summaryRefresh;
+        }
+
+        public void setSummaryRefresh(Duration summaryRefresh) {
+            this.summaryRefresh = summaryRefresh;
+        }
+    }
+
+    public static class Index {
+
+        private boolean enabled = false;
+        // Confirme qu'une seule instance écrit dans la base : l'index ne voit que les écritures locales
+        private boolean singleNode = false;
+        private Duration rebuildInterval = Duration.ofHours(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isSingleNode() {
+            return singleNode;
+        }
+
+        public void setSingleNode(boolean singleNode) {
+            this.singleNode = singleNode;
+        }
+
+        public Duration getRebuildInterval() {
+            return rebuildInterval;
+        }
+
+        public void setRebuildInterval(Duration rebuildInterval) {
+            this.rebuildInterval = rebuildInterval;
+        }
+    }
+}
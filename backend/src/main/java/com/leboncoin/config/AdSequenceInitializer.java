@@ -0,0 +1,41 @@
+package com.leboncoin.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Les bases créées quand Ad.id était en IDENTITY contiennent déjà des ids :
+ * la séquence ads_seq (créée par ddl-auto) est recalée au-delà du max(id)
+ * avant que le serveur web n'accepte des requêtes.
+ */
+@Component
+// Le schéma doit être à jour (ddl-auto) avant le recalage
+@DependsOn("entityManagerFactory")
+public class AdSequenceInitializer implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AdSequenceInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AdSequenceInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        try {
+            // Avec l'optimiseur pooled, setval(max) fait démarrer le prochain bloc à max + 1
+            jdbcTemplate.queryForList("""
+                    SELECT setval('ads_seq', m.max_id)
+                    FROM (SELECT COALESCE(MAX(id), 0) AS max_id FROM ads) m, ads_seq s
+                    WHERE s.last_value < m.max_id""");
+        } catch (DataAccessException e) {
+            log.warn("Unable to align ads_seq with existing ad ids: {}", e.getMessage());
+        }
+    }
+}
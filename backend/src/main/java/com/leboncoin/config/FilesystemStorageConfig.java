@@ -0,0 +1,16 @@
+package com.leboncoin.config;
+
+import com.leboncoin.storage.LocalUrlSigner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "storage.type", havingValue = "filesystem")
+public class FilesystemStorageConfig {
+
+    @Bean
+    public LocalUrlSigner localUrlSigner(StorageProperties properties) {
+        return new LocalUrlSigner(properties.getFilesystem());
+    }
+}
@@ -1,11 +1,14 @@
 package com.leboncoin.config;
 
+import com.leboncoin.storage.PresignedUrlSigner;
 import io.minio.MinioClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
+@ConditionalOnProperty(name = "storage.type", havingValue = "minio", matchIfMissing = true)
 @EnableConfigurationProperties(MinioProperties.class)
 public class MinioConfig {
 
@@ -14,6 +17,12 @@ public class MinioConfig {
         return MinioClient.builder()
                 .endpoint(properties.getEndpoint())
                 .credentials(properties.getAccessKey(), properties.getSecretKey())
+                .region(properties.getRegion())
                 .build();
     }
+
+    @Bean
+    public PresignedUrlSigner presignedUrlSigner(MinioProperties properties) {
+        return new PresignedUrlSigner(properties);
+    }
 }
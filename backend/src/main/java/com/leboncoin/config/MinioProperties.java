@@ -12,8 +12,11 @@ public class MinioProperties {
     private String accessKey;
     private String secretKey;
     private String bucket;
+    private String region = "us-east-1";
     private boolean secure;
     private Duration presignedUrlDuration = Duration.ofHours(1);
+    private Duration presignedUploadDuration = Duration.ofMinutes(10);
+    private PresignedUrlCache presignedUrlCache = new PresignedUrlCache();
 
     public String getEndpoint() {
         return endpoint;
@@ -55,6 +58,14 @@ public class MinioProperties {
         this.bucket = bucket;
     }
 
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
     public boolean isSecure() {
         return secure;
     }
@@ -70,4 +81,52 @@ public class MinioProperties {
     public void setPresignedUrlDuration(Duration presignedUrlDuration) {
         this.presignedUrlDuration = presignedUrlDuration;
     }
+
+    public Duration getPresignedUploadDuration() {
+        return presignedUploadDuration;
+    }
+
+    public void setPresignedUploadDuration(Duration presignedUploadDuration) {
+        this.presignedUploadDuration = presignedUploadDuration;
+    }
+
+    public PresignedUrlCache getPresignedUrlCache() {
+        return presignedUrlCache;
+    }
+
+    public void setPresignedUrlCache(PresignedUrlCache presignedUrlCache) {
+        this.presignedUrlCache = presignedUrlCache;
+    }
+
+    public static class PresignedUrlCache {
+
+        private boolean enabled = true;
+        private long maximumSize = 10_000;
+        // Part de la durée de validité pendant laquelle une URL signée est réutilisée
+        private double reuseFraction = 0.5;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public double getReuseFraction() {
+            return reuseFraction;
+        }
+
+        public void setReuseFraction(double reuseFraction) {
+            this.reuseFraction = reuseFraction;
+        }
+    }
 }
@@ -0,0 +1,80 @@
+package com.leboncoin.config;
+
+import com.leboncoin.repository.SearchCapabilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Détecte au démarrage les objets de recherche PostgreSQL créés par
+ * db/002_search_schema.sql (colonne search_vector, index GIN plein texte et
+ * trigramme). Aucun DDL n'est exécuté ici : construire ces index au
+ * démarrage verrouillerait la table ads en écriture.
+ *
+ * Sans la colonne, la recherche par titre reste sur le chemin LIKE ; sans
+ * l'index trigramme, elle se limite au plein texte.
+ */
+@Configuration
+public class SearchCapabilitiesDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchCapabilitiesDetector.class);
+
+    private static final Pattern TEXT_SEARCH_CONFIG = Pattern.compile("[a-z_]+");
+
+    private static final String SEARCH_VECTOR_EXISTS = """
+            SELECT count(*) FROM information_schema.columns
+            WHERE table_schema = current_schema() AND table_name = 'ads' AND column_name = 'search_vector'""";
+
+    // Un index CONCURRENTLY interrompu existe mais reste invalide
+    private static final String INDEX_VALID = """
+            SELECT i.indisvalid FROM pg_index i
+            JOIN pg_class c ON c.oid = i.indexrelid
+            WHERE c.relname = ? AND pg_table_is_visible(c.oid)""";
+
+    @Bean
+    CommandLineRunner detectSearchCapabilities(JdbcTemplate jdbcTemplate, AdSearchProperties properties,
+            SearchCapabilities capabilities) {
+        return args -> {
+            AdSearchProperties.FullText fullText = properties.getFullText();
+            if (!fullText.isEnabled()) {
+                return;
+            }
+            String config = fullText.getTextSearchConfig();
+            if (!TEXT_SEARCH_CONFIG.matcher(config).matches()) {
+                throw new IllegalStateException("Invalid text search configuration: " + config);
+            }
+
+            try {
+                if (isValidIndex(jdbcTemplate, "idx_ads_title_trgm")) {
+                    capabilities.enableTrigram();
+                } else {
+                    log.warn("idx_ads_title_trgm missing or invalid, substring title search will not be indexed");
+                }
+
+                Long columns = jdbcTemplate.queryForObject(SEARCH_VECTOR_EXISTS, Long.class);
+                if (columns == null || columns == 0) {
+                    log.warn("ads.search_vector missing (run db/002_search_schema.sql), falling back to LIKE title search");
+                    return;
+                }
+                if (!isValidIndex(jdbcTemplate, "idx_ads_search_vector")) {
+                    log.warn("idx_ads_search_vector missing or invalid, full-text search will scan the ads table");
+                }
+                capabilities.enableFullText(config);
+            } catch (DataAccessException e) {
+                log.warn("Unable to inspect the search schema, falling back to LIKE title search: {}", e.getMessage());
+            }
+        };
+    }
+
+    private static boolean isValidIndex(JdbcTemplate jdbcTemplate, String name) {
+        List<Boolean> valid = jdbcTemplate.queryForList(INDEX_VALID, Boolean.class, name);
+        return !valid.isEmpty() && Boolean.TRUE.equals(valid.get(0));
+    }
+}
@@ -0,0 +1,41 @@
+package com.leboncoin.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@EnableConfigurationProperties(StorageProperties.class)
+public class StorageConfig {
+
+    /**
+     * Pool partagé des envois d'images : sa taille est le plafond global de
+     * putObject simultanés, toutes requêtes confondues.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService imageUploadExecutor(StorageProperties properties) {
+        int threads = Math.max(1, properties.getUpload().getMaxConcurrency());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("image-upload-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService imageVariantExecutor(StorageProperties properties) {
+        StorageProperties.Variants settings = properties.getVariants();
+        int threads = Math.max(1, settings.getThreads());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, settings.getQueueCapacity())),
+                new CustomizableThreadFactory("image-variant-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
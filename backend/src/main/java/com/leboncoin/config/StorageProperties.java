@@ -0,0 +1,440 @@
+package com.leboncoin.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "storage")
+public class StorageProperties {
+
+    // minio | filesystem
+    private String type = "minio";
+    private Filesystem filesystem = new Filesystem();
+    private Outbox outbox = new Outbox();
+    private Upload upload = new Upload();
+    private Variants variants = new Variants();
+    private Gc gc = new Gc();
+    private Proxy proxy = new Proxy();
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Filesystem getFilesystem() {
+        return filesystem;
+    }
+
+    public void setFilesystem(Filesystem filesystem) {
+        this.filesystem = filesystem;
+    }
+
+    public Outbox getOutbox() {
+        return outbox;
+    }
+
+    public void setOutbox(Outbox outbox) {
+        this.outbox = outbox;
+    }
+
+    public Upload getUpload() {
+        return upload;
+    }
+
+    public void setUpload(Upload upload) {
+        this.upload = upload;
+    }
+
+    public Variants getVariants() {
+        return variants;
+    }
+
+    public void setVariants(Variants variants) {
+        this.variants = variants;
+    }
+
+    public Gc getGc() {
+        return gc;
+    }
+
+    public void setGc(Gc gc) {
+        this.gc = gc;
+    }
+
+    public Proxy getProxy() {
+        return proxy;
+    }
+
+    public void setProxy(Proxy proxy) {
+        this.proxy = proxy;
+    }
+
+    /**
+     * Stockage sur disque local : les objets sont servis par le backend via
+     * des URLs signées et expirantes, à la place des URLs présignées S3.
+     */
+    public static class Filesystem {
+
+        private String root = "./data/storage";
+        private String publicBaseUrl = "http://localhost:8080";
+        private String signingSecret;
+        private Duration urlDuration = Duration.ofHours(1);
+        private Duration uploadDuration = Duration.ofMinutes(10);
+
+        public String getRoot() {
+            return root;
+        }
+
+        public void setRoot(String root) {
+            this.root = root;
+        }
+
+        public String getPublicBaseUrl() {
+            return publicBaseUrl;
+        }
+
+        public void setPublicBaseUrl(String publicBaseUrl) {
+            this.publicBaseUrl = publicBaseUrl;
+        }
+
+        public String getSigningSecret() {
+            return signingSecret;
+        }
+
+        public void setSigningSecret(String signingSecret) {
+            this.signingSecret = signingSecret;
+        }
+
+        public Duration getUrlDuration() {
+            return urlDuration;
+        }
+
+        public void setUrlDuration(Duration urlDuration) {
+            this.urlDuration = urlDuration;
+        }
+
+        public Duration getUploadDuration() {
+            return uploadDuration;
+        }
+
+        public void setUploadDuration(Duration uploadDuration) {
+            this.uploadDuration = uploadDuration;
+        }
+    }
+
+    /**
+     * Proxy d'images du backend : les URLs d'images des annonces pointent vers
+     * /api/ads/images/{key}, servi depuis un cache disque borné.
+     */
+    public static class Proxy {
+
+        private boolean enabled = false;
+        private String publicBaseUrl = "http://localhost:8080";
+        private String cacheDirectory = "./data/image-cache";
+        private DataSize maxCacheSize = DataSize.ofGigabytes(2);
+        // Clés par contenu : un objet ne change jamais sous la même clé
+        private Duration maxAge = Duration.ofDays(365);
+        // Une suppression n'évince que le cache du nœud qui l'exécute : les autres revérifient
+        private Duration revalidateAfter = Duration.ofMinutes(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getPublicBaseUrl() {
+            return publicBaseUrl;
+        }
+
+        public void setPublicBaseUrl(String publicBaseUrl) {
+            this.publicBaseUrl = publicBaseUrl;
+        }
+
+        public String getCacheDirectory() {
+            return cacheDirectory;
+        }
+
+        public void setCacheDirectory(String cacheDirectory) {
+            this.cacheDirectory = cacheDirectory;
+        }
+
+        public DataSize getMaxCacheSize() {
+            return maxCacheSize;
+        }
+
+        public void setMaxCacheSize(DataSize maxCacheSize) {
+            this.maxCacheSize = maxCacheSize;
+        }
+
+        public Duration getMaxAge() {
+            return maxAge;
+        }
+
+        public void setMaxAge(Duration maxAge) {
+            this.maxAge = maxAge;
+        }
+
+        public Duration getRevalidateAfter() {
+            return revalidateAfter;
+        }
+
+        public void setRevalidateAfter(Duration revalidateAfter) {
+            this.revalidateAfter = revalidateAfter;
+        }
+    }
+
+    /**
+     * Ramasse-miettes des objets orphelins : parcours incrémental des
+     * préfixes, borné par exécution et ralenti entre deux pages de listing.
+     */
+    public static class Gc {
+
+        private boolean enabled = true;
+        private Duration interval = Duration.ofMinutes(10);
+        private Duration gracePeriod = Duration.ofDays(1);
+        private List<String> prefixes = new ArrayList<>(List.of("ads/", "uploads/tmp/"));
+        private int maxObjectsPerRun = 5000;
+        private int pageSize = 500;
+        private Duration pageDelay = Duration.ofMillis(200);
+        private double falsePositiveRate = 0.01;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public Duration getGracePeriod() {
+            return gracePeriod;
+        }
+
+        public void setGracePeriod(Duration gracePeriod) {
+            this.gracePeriod = gracePeriod;
+        }
+
+        public List<String> getPrefixes() {
+            return prefixes;
+        }
+
+        public void setPrefixes(List<String> prefixes) {
+            this.prefixes = prefixes;
+        }
+
+        public int getMaxObjectsPerRun() {
+            return maxObjectsPerRun;
+        }
+
+        public void setMaxObjectsPerRun(int maxObjectsPerRun) {
+            this.maxObjectsPerRun = maxObjectsPerRun;
+        }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public Duration getPageDelay() {
+            return pageDelay;
+        }
+
+        public void setPageDelay(Duration pageDelay) {
+            this.pageDelay = pageDelay;
+        }
+
+        public double getFalsePositiveRate() {
+            return falsePositiveRate;
+        }
+
+        public void setFalsePositiveRate(double falsePositiveRate) {
+            this.falsePositiveRate = falsePositiveRate;
+        }
+    }
+
+    /**
+     * Génération asynchrone des variantes (miniature, taille moyenne) : pool
+     * et file d'attente bornés, les images en excès gardent l'original.
+     */
+    public static class Variants {
+
+        private boolean enabled = true;
+        private int threads = 2;
+        private int queueCapacity = 100;
+        private float jpegQuality = 0.82f;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public float getJpegQuality() {
+            return jpegQuality;
+        }
+
+        public void setJpegQuality(float jpegQuality) {
+            this.jpegQuality = jpegQuality;
+        }
+    }
+
+    /**
+     * Envois parallèles vers le stockage : plafond global (taille du pool
+     * partagé) et plafond par requête.
+     */
+    public static class Upload {
+
+        private int maxConcurrency = 16;
+        private int maxConcurrencyPerRequest = 4;
+        // Upload en flux : taille des parts S3 (5 Mo minimum) et limites par requête
+        private DataSize partSize = DataSize.ofMegabytes(5);
+        private DataSize maxFileSize = DataSize.ofMegabytes(20);
+        private int maxFiles = 10;
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public int getMaxConcurrencyPerRequest() {
+            return maxConcurrencyPerRequest;
+        }
+
+        public void setMaxConcurrencyPerRequest(int maxConcurrencyPerRequest) {
+            this.maxConcurrencyPerRequest = maxConcurrencyPerRequest;
+        }
+
+        public DataSize getPartSize() {
+            return partSize;
+        }
+
+        public void setPartSize(DataSize partSize) {
+            this.partSize = partSize;
+        }
+
+        public DataSize getMaxFileSize() {
+            return maxFileSize;
+        }
+
+        public void setMaxFileSize(DataSize maxFileSize) {
+            this.maxFileSize = maxFileSize;
+        }
+
+        public int getMaxFiles() {
+            return maxFiles;
+        }
+
+        public void setMaxFiles(int maxFiles) {
+            this.maxFiles = maxFiles;
+        }
+    }
+
+    public static class Outbox {
+
+        private int batchSize = 100;
+        private int maxBatchesPerRun = 10;
+        private Duration pollInterval = Duration.ofSeconds(5);
+        private Duration initialBackoff = Duration.ofSeconds(10);
+        private Duration maxBackoff = Duration.ofHours(1);
+        private Duration deletionDelay = Duration.ofHours(1);
+        // Lot réservé le temps des appels au stockage, hors transaction
+        private Duration claimDuration = Duration.ofMinutes(5);
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxBatchesPerRun() {
+            return maxBatchesPerRun;
+        }
+
+        public void setMaxBatchesPerRun(int maxBatchesPerRun) {
+            this.maxBatchesPerRun = maxBatchesPerRun;
+        }
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public Duration getDeletionDelay() {
+            return deletionDelay;
+        }
+
+        public void setDeletionDelay(Duration deletionDelay) {
+            this.deletionDelay = deletionDelay;
+        }
+
+        public Duration getClaimDuration() {
+            return claimDuration;
+        }
+
+        public void setClaimDuration(Duration claimDuration) {
+            this.claimDuration = claimDuration;
+        }
+    }
+}
@@ -1,15 +1,30 @@
 package com.leboncoin.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leboncoin.config.AdSearchProperties;
+import com.leboncoin.dto.AdBatchRequestDTO;
 import com.leboncoin.dto.AdDTO;
+import com.leboncoin.dto.AdFacetsDTO;
+import com.leboncoin.dto.AdImageMode;
+import com.leboncoin.dto.AdImageSize;
+import com.leboncoin.dto.AdSearchSort;
+import com.leboncoin.dto.CursorPageDTO;
+import com.leboncoin.service.AdFacetService;
 import com.leboncoin.service.AdService;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 /**
@@ -30,9 +45,16 @@ import java.util.List;
 public class AdController {
 
     private final AdService adService;
+    private final AdFacetService adFacetService;
+    private final ObjectMapper objectMapper;
+    private final AdSearchProperties searchProperties;
 
-    public AdController(AdService adService) {
+    public AdController(AdService adService, AdFacetService adFacetService, ObjectMapper objectMapper,
+            AdSearchProperties searchProperties) {
         this.adService = adService;
+        this.adFacetService = adFacetService;
+        this.objectMapper = objectMapper;
+        this.searchProperties = searchProperties;
     }
 
     @PostMapping
@@ -43,12 +65,33 @@ public class AdController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdAd);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<AdDTO>> createAds(
+            @Valid @RequestBody AdBatchRequestDTO batchRequest,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        List<AdDTO> createdAds = adService.createAds(batchRequest.getAds(), userDetails.getUsername());
+        return ResponseEntity.status(HttpStatus.CREATED).body(createdAds);
+    }
+
     @GetMapping
-    public ResponseEntity<List<AdDTO>> getAllAds() {
-        List<AdDTO> ads = adService.getAllAds();
+    public ResponseEntity<List<AdDTO>> getAllAds(@RequestParam(defaultValue = "ALL") AdImageMode images,
+            @RequestParam(defaultValue = "ORIGINAL") AdImageSize imageSize) {
+        List<AdDTO> ads = adService.getAllAds(images, imageSize);
         return ResponseEntity.ok(ads);
     }
 
+    /**
+     * Export NDJSON (une annonce par ligne) du catalogue complet, sans le
+     * matérialiser en mémoire. Sélectionné via Accept: application/x-ndjson.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAds() {
+        StreamingResponseBody body = outputStream -> adService.exportAds(ad -> writeNdjsonLine(outputStream, ad));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @GetMapping("/search")
     public ResponseEntity<Page<AdDTO>> searchAds(
             @RequestParam(required = false) String category,
@@ -56,18 +99,69 @@ public class AdController {
             @RequestParam(required = false) Integer minPrice,
             @RequestParam(required = false) Integer maxPrice,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "ALL") AdImageMode images,
+            @RequestParam(defaultValue = "ORIGINAL") AdImageSize imageSize
+    ) {
+        if (page < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page index must not be negative");
+        }
+        checkPageSize(size);
+        Page<AdDTO> ads = adService.searchAds(category, title, minPrice, maxPrice, page, size, images, imageSize);
+        return ResponseEntity.ok(ads);
+    }
+
+    /**
+     * Mode curseur de la recherche, activé par la présence du paramètre
+     * {@code cursor} (vide pour la première page).
+     */
+    @GetMapping(path = "/search", params = "cursor")
+    public ResponseEntity<CursorPageDTO<AdDTO>> searchAdsByCursor(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) Integer minPrice,
+            @RequestParam(required = false) Integer maxPrice,
+            @RequestParam(defaultValue = "RECENT") AdSearchSort sort,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "ALL") AdImageMode images,
+            @RequestParam(defaultValue = "ORIGINAL") AdImageSize imageSize
     ) {
-        Page<AdDTO> ads = adService.searchAds(category, title, minPrice, maxPrice, page, size);
+        checkPageSize(size);
+        CursorPageDTO<AdDTO> ads = adService.searchAdsByCursor(category, title, minPrice, maxPrice, sort, cursor, size,
+                images, imageSize);
         return ResponseEntity.ok(ads);
     }
 
+    /**
+     * Compteurs par catégorie et par tranche de prix pour les mêmes filtres
+     * que /search, calculés en une seule agrégation.
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<AdFacetsDTO> getFacets(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) Integer minPrice,
+            @RequestParam(required = false) Integer maxPrice,
+            @RequestParam(required = false) List<Integer> priceBounds
+    ) {
+        AdFacetsDTO facets = adFacetService.getFacets(category, title, minPrice, maxPrice, priceBounds);
+        return ResponseEntity.ok(facets);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<AdDTO> getAdById(@PathVariable Integer id) {
-        AdDTO ad = adService.getAdById(id);
+    public ResponseEntity<AdDTO> getAdById(@PathVariable Integer id,
+            @RequestParam(defaultValue = "ORIGINAL") AdImageSize imageSize) {
+        AdDTO ad = adService.getAdById(id, imageSize);
         return ResponseEntity.ok(ad);
     }
 
+    @GetMapping("/{id}/images")
+    public ResponseEntity<List<String>> getAdImages(@PathVariable Integer id) {
+        List<String> images = adService.getAdImages(id);
+        return ResponseEntity.ok(images);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<AdDTO> updateAd(
             @PathVariable Integer id,
@@ -84,4 +178,21 @@ public class AdController {
         AdDTO ad = adService.deleteAdById(id, userDetails.getUsername());
         return ResponseEntity.ok(ad);
     }
+
+    // Une taille hors bornes ferait lire une page vide ou arbitrairement grande
+    private void checkPageSize(int size) {
+        int max = searchProperties.getMaxPageSize();
+        if (size < 1 || size > max) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page size must be between 1 and " + max);
+        }
+    }
+
+    private void writeNdjsonLine(OutputStream outputStream, AdDTO ad) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(ad));
+            outputStream.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -1,8 +1,19 @@
 package com.leboncoin.controller;
 
+import com.leboncoin.config.StorageProperties;
+import com.leboncoin.dto.ImageConfirmRequestDTO;
+import com.leboncoin.dto.ImageUploadRequestDTO;
 import com.leboncoin.dto.ImageUploadResponseDTO;
+import com.leboncoin.dto.PresignedUploadResponseDTO;
+import com.leboncoin.service.ImageUrlService;
 import com.leboncoin.storage.ObjectStorageService;
+import com.leboncoin.storage.PresignedUpload;
 import com.leboncoin.storage.StorageException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -10,11 +21,15 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -22,9 +37,14 @@ import java.util.List;
 public class AdImageController {
 
     private final ObjectStorageService objectStorageService;
+    private final ImageUrlService imageUrlService;
+    private final StorageProperties storageProperties;
 
-    public AdImageController(ObjectStorageService objectStorageService) {
+    public AdImageController(ObjectStorageService objectStorageService, ImageUrlService imageUrlService,
+            StorageProperties storageProperties) {
         this.objectStorageService = objectStorageService;
+        this.imageUrlService = imageUrlService;
+        this.storageProperties = storageProperties;
     }
 
     @PostMapping(path = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -40,13 +60,117 @@ public class AdImageController {
             throw new StorageException("No files provided");
         }
 
-        ImageUploadResponseDTO response = new ImageUploadResponseDTO();
         List<String> objectNames = objectStorageService.uploadImages(files);
-        objectNames.forEach(objectName -> response.addImage(new ImageUploadResponseDTO.UploadedImageDTO(
-                objectName,
-                objectStorageService.generatePresignedGetUrl(objectName)
-        )));
+        return ResponseEntity.status(HttpStatus.CREATED).body(uploadedImages(objectNames));
+    }
+
+    /**
+     * Variante en flux de /upload : chaque partie du corps multipart est
+     * transmise directement au stockage, sans mise en tampon par le conteneur
+     * (ni mémoire, ni fichier temporaire). Tout ou rien, comme /upload.
+     */
+    @PostMapping(path = "/upload-stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImageUploadResponseDTO> uploadImagesStreaming(
+            HttpServletRequest request,
+            @AuthenticationPrincipal UserDetails userDetails) {
+
+        if (userDetails == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        StorageProperties.Upload limits = storageProperties.getUpload();
+        JakartaServletFileUpload<?, ?> upload = new JakartaServletFileUpload<>();
+        upload.setFileSizeMax(limits.getMaxFileSize().toBytes());
+        upload.setFileCountMax(limits.getMaxFiles());
+
+        List<String> objectNames = new ArrayList<>();
+        try {
+            FileItemInputIterator parts = upload.getItemIterator(request);
+            while (parts.hasNext()) {
+                FileItemInput part = parts.next();
+                if (part.isFormField() || !"files".equals(part.getFieldName())) {
+                    continue;
+                }
+                if (objectNames.size() >= limits.getMaxFiles()) {
+                    throw new StorageException("Too many files, at most %d allowed".formatted(limits.getMaxFiles()));
+                }
+                try (InputStream content = part.getInputStream()) {
+                    objectNames.add(objectStorageService.uploadImage(content, part.getName()));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            objectStorageService.discardUploads(objectNames);
+            throw e instanceof StorageException storageException
+                    ? storageException
+                    : new StorageException("Unable to read multipart upload", e);
+        }
+
+        if (objectNames.isEmpty()) {
+            throw new StorageException("No files provided");
+        }
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(uploadedImages(objectNames));
+    }
+
+    /**
+     * Envoi direct vers le stockage, étape 1 : une URL PUT présignée par
+     * image, liée à son type, sa taille et son SHA-256. Les images déjà
+     * stockées sont signalées et n'ont pas à être renvoyées.
+     */
+    @PostMapping("/presign")
+    public ResponseEntity<PresignedUploadResponseDTO> presignUploads(
+            @Valid @RequestBody ImageUploadRequestDTO request,
+            @AuthenticationPrincipal UserDetails userDetails) {
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        if (userDetails == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        int maxFiles = storageProperties.getUpload().getMaxFiles();
+        if (request.getFiles().size() > maxFiles) {
+            throw new StorageException("Too many files, at most %d allowed".formatted(maxFiles));
+        }
+
+        PresignedUploadResponseDTO response = new PresignedUploadResponseDTO();
+        request.getFiles().forEach(file -> {
+            PresignedUpload upload = objectStorageService.presignImageUpload(file.getContentType(), file.getSize(),
+                    file.getSha256());
+            response.addUpload(new PresignedUploadResponseDTO.PresignedUploadDTO(
+                    upload.objectName(),
+                    upload.uploadUrl(),
+                    upload.headers(),
+                    upload.expiresAt(),
+                    upload.alreadyStored()
+            ));
+        });
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Étape 2 : le client confirme les clés envoyées ; leur présence est
+     * vérifiée avant de renvoyer les URLs d'aperçu.
+     */
+    @PostMapping("/confirm")
+    public ResponseEntity<ImageUploadResponseDTO> confirmUploads(
+            @Valid @RequestBody ImageConfirmRequestDTO request,
+            @AuthenticationPrincipal UserDetails userDetails) {
+
+        if (userDetails == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        List<String> objectNames = request.getObjectNames().stream().distinct().toList();
+        objectStorageService.confirmUploads(objectNames);
+        return ResponseEntity.ok(uploadedImages(objectNames));
+    }
+
+    // Aperçus servis comme les images des annonces : proxy d'images s'il est activé, sinon URLs présignées
+    private ImageUploadResponseDTO uploadedImages(List<String> objectNames) {
+        ImageUploadResponseDTO response = new ImageUploadResponseDTO();
+        List<String> urls = imageUrlService.urls(objectNames);
+        for (int i = 0; i < objectNames.size(); i++) {
+            response.addImage(new ImageUploadResponseDTO.UploadedImageDTO(objectNames.get(i), urls.get(i)));
+        }
+        return response;
     }
 }
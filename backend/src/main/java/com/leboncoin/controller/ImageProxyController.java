@@ -0,0 +1,57 @@
+package com.leboncoin.controller;
+
+import com.leboncoin.config.StorageProperties;
+import com.leboncoin.storage.ImageDiskCache;
+import com.leboncoin.storage.ObjectNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * Proxy des images d'annonces, servi depuis le cache disque local. Les clés
+ * étant dérivées du contenu, les réponses sont cachables sans limite par les
+ * navigateurs et les CDN.
+ */
+@RestController
+@RequestMapping("/api/ads/images")
+@ConditionalOnProperty(name = "storage.proxy.enabled", havingValue = "true")
+public class ImageProxyController {
+
+    private final ImageDiskCache imageDiskCache;
+    private final String cacheControl;
+
+    public ImageProxyController(ImageDiskCache imageDiskCache, StorageProperties storageProperties) {
+        this.imageDiskCache = imageDiskCache;
+        this.cacheControl = "public, max-age=" + storageProperties.getProxy().getMaxAge().toSeconds() + ", immutable";
+    }
+
+    @GetMapping("/{*key}")
+    public void getImage(@PathVariable String key, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String objectName = key.startsWith("/") ? key.substring(1) : key;
+        // ETag stable d'un nœud à l'autre : le contenu ne change jamais sous une même URL
+        String etag = "\"" + objectName.substring(objectName.lastIndexOf('/') + 1) + "\"";
+        try {
+            Path file = imageDiskCache.get(objectName);
+            try {
+                FileResponses.send(request, response, file, ImageDiskCache.contentTypeOf(objectName),
+                        cacheControl, etag);
+            } catch (NoSuchFileException e) {
+                // Évincé entre la recherche et l'envoi : une seule relecture
+                imageDiskCache.invalidate(objectName);
+                FileResponses.send(request, response, imageDiskCache.get(objectName),
+                        ImageDiskCache.contentTypeOf(objectName), cacheControl, etag);
+            }
+        } catch (ObjectNotFoundException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.leboncoin.controller;
+
+import com.leboncoin.storage.FilesystemObjectStorageService;
+import com.leboncoin.storage.LocalUrlSigner;
+import com.leboncoin.storage.ObjectNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+
+/**
+ * Sert les objets du stockage disque sous URLs signées : l'accès est contrôlé
+ * par la signature, pas par l'authentification.
+ */
+@RestController
+@RequestMapping("/api/storage/objects")
+@ConditionalOnProperty(name = "storage.type", havingValue = "filesystem")
+public class LocalStorageController {
+
+    private final FilesystemObjectStorageService storageService;
+    private final LocalUrlSigner localUrlSigner;
+
+    public LocalStorageController(FilesystemObjectStorageService storageService, LocalUrlSigner localUrlSigner) {
+        this.storageService = storageService;
+        this.localUrlSigner = localUrlSigner;
+    }
+
+    @GetMapping("/{*key}")
+    public void getObject(@PathVariable String key, @RequestParam long expires, @RequestParam String signature,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String objectName = stripSlash(key);
+        if (!localUrlSigner.verify("GET", objectName, expires, signature)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        long remaining = Math.max(0, expires - Instant.now().getEpochSecond());
+        try {
+            FileResponses.send(request, response, storageService.locate(objectName),
+                    storageService.contentTypeOf(objectName), "private, max-age=" + remaining);
+        } catch (ObjectNotFoundException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+    @PutMapping("/{*key}")
+    public ResponseEntity<Void> putObject(@PathVariable String key, @RequestParam long expires,
+            @RequestParam String signature,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestHeader(HttpHeaders.CONTENT_LENGTH) long contentLength,
+            HttpServletRequest request) throws IOException {
+        String objectName = stripSlash(key);
+        if (!localUrlSigner.verify("PUT", objectName, expires, signature, contentType,
+                Long.toString(contentLength))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try (InputStream content = request.getInputStream()) {
+            storageService.storeSignedUpload(objectName, content, contentLength);
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    private static String stripSlash(String key) {
+        return key.startsWith("/") ? key.substring(1) : key;
+    }
+}
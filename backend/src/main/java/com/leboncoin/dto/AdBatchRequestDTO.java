@@ -0,0 +1,32 @@
+package com.leboncoin.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class AdBatchRequestDTO {
+
+    @NotEmpty(message = "At least one ad is required")
+    @Size(max = 500, message = "At most 500 ads can be created at once")
+    private List<@Valid AdDTO> ads = new ArrayList<>();
+
+    // Constructors
+    public AdBatchRequestDTO() {
+    }
+
+    public AdBatchRequestDTO(List<AdDTO> ads) {
+        this.ads = ads;
+    }
+
+    // Getters and Setters
+    public List<AdDTO> getAds() {
+        return ads;
+    }
+
+    public void setAds(List<AdDTO> ads) {
+        this.ads = ads;
+    }
+}
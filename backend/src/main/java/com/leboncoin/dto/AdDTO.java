@@ -41,6 +41,14 @@ public class AdDTO {
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private List<String> images;
 
+    // Variantes redimensionnées, l'original tant qu'elles ne sont pas prêtes ;
+    // seule la liste de la taille demandée (imageSize) est remplie
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private List<String> thumbnailImages;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private List<String> mediumImages;
+
     @JsonProperty("imageObjectNames")
     private List<String> imageObjectNames;
 
@@ -108,6 +116,22 @@ public class AdDTO {
         this.images = images;
     }
 
+    public List<String> getThumbnailImages() {
+        return thumbnailImages;
+    }
+
+    public void setThumbnailImages(List<String> thumbnailImages) {
+        this.thumbnailImages = thumbnailImages;
+    }
+
+    public List<String> getMediumImages() {
+        return mediumImages;
+    }
+
+    public void setMediumImages(List<String> mediumImages) {
+        this.mediumImages = mediumImages;
+    }
+
     public List<String> getImageObjectNames() {
         return imageObjectNames;
     }
@@ -0,0 +1,82 @@
+package com.leboncoin.dto;
+
+import com.leboncoin.entity.CategoryEnum;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+public class AdFacetsDTO {
+
+    private long total;
+    private Map<CategoryEnum, Long> categories = new EnumMap<>(CategoryEnum.class);
+    private List<PriceBucketDTO> priceBuckets = new ArrayList<>();
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public Map<CategoryEnum, Long> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(Map<CategoryEnum, Long> categories) {
+        this.categories = categories;
+    }
+
+    public List<PriceBucketDTO> getPriceBuckets() {
+        return priceBuckets;
+    }
+
+    public void setPriceBuckets(List<PriceBucketDTO> priceBuckets) {
+        this.priceBuckets = priceBuckets;
+    }
+
+    /**
+     * Tranche de prix [min, max[ ; min ou max est nul pour les tranches ouvertes.
+     */
+    public static class PriceBucketDTO {
+
+        private Integer min;
+        private Integer max;
+        private long count;
+
+        public PriceBucketDTO() {
+        }
+
+        public PriceBucketDTO(Integer min, Integer max, long count) {
+            this.min = min;
+            this.max = max;
+            this.count = count;
+        }
+
+        public Integer getMin() {
+            return min;
+        }
+
+        public void setMin(Integer min) {
+            this.min = min;
+        }
+
+        public Integer getMax() {
+            return max;
+        }
+
+        public void setMax(Integer max) {
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+    }
+}
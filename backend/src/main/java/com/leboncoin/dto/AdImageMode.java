@@ -0,0 +1,24 @@
+package com.leboncoin.dto;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Images dont l'URL présignée est calculée dans les réponses de liste.
+ *
+ * Les clés ({@code imageObjectNames}) sont toujours renvoyées : les URLs
+ * manquantes s'obtiennent à la demande via /api/ads/{id}/images.
+ */
+public enum AdImageMode {
+    FIRST,
+    ALL,
+    NONE;
+
+    public List<String> select(List<String> objectNames) {
+        return switch (this) {
+            case ALL -> objectNames;
+            case FIRST -> objectNames.isEmpty() ? objectNames : objectNames.subList(0, 1);
+            case NONE -> Collections.emptyList();
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package com.leboncoin.dto;
+
+import com.leboncoin.storage.ImageVariant;
+
+/**
+ * Taille des images signées dans les réponses d'annonces. Une seule liste
+ * d'URLs est remplie ({@code images}, {@code mediumImages} ou
+ * {@code thumbnailImages}) : chaque image n'est signée qu'une fois.
+ */
+public enum AdImageSize {
+    ORIGINAL(null),
+    MEDIUM(ImageVariant.MEDIUM),
+    THUMB(ImageVariant.THUMB);
+
+    private final ImageVariant variant;
+
+    AdImageSize(ImageVariant variant) {
+        this.variant = variant;
+    }
+
+    // null pour l'original
+    public ImageVariant getVariant() {
+        return variant;
+    }
+}
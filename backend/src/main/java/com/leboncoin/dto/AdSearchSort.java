@@ -0,0 +1,42 @@
+package com.leboncoin.dto;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * Ordres de tri supportés par la pagination par curseur de /api/ads/search.
+ *
+ * Chaque ordre se termine par l'id pour garantir une clé de tri unique (keyset).
+ * RECENT trie par id décroissant, ce qui n'est qu'une approximation de l'ordre
+ * de création : chaque instance réserve ses ids par blocs de 50 (séquence
+ * pooled), et deux annonces créées sur des instances différentes peuvent
+ * sortir dans l'ordre inverse. Le parcours reste stable et sans doublon. Les
+ * tris par prix placent les annonces sans prix en dernier, dans l'ordre de
+ * leur id.
+ */
+public enum AdSearchSort {
+    RECENT(Sort.by(Sort.Order.desc("id"))),
+    ID(Sort.by(Sort.Order.asc("id"))),
+    PRICE_ASC(Sort.by(Sort.Order.asc("price"), Sort.Order.asc("id"))),
+    PRICE_DESC(Sort.by(Sort.Order.desc("price"), Sort.Order.desc("id")));
+
+    private final Sort sort;
+
+    AdSearchSort(Sort sort) {
+        this.sort = sort;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public boolean sortsByPrice() {
+        return this == PRICE_ASC || this == PRICE_DESC;
+    }
+
+    /**
+     * Ordre des annonces sans prix, parcourues après les autres.
+     */
+    public Sort getNullPriceSort() {
+        return Sort.by(sort.getOrderFor("id"));
+    }
+}
@@ -0,0 +1,20 @@
+package com.leboncoin.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public class ImageConfirmRequestDTO {
+
+    @NotEmpty(message = "At least one object name is required")
+    private List<@NotBlank String> objectNames;
+
+    public List<String> getObjectNames() {
+        return objectNames;
+    }
+
+    public void setObjectNames(List<String> objectNames) {
+        this.objectNames = objectNames;
+    }
+}
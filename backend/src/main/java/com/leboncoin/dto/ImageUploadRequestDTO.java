@@ -0,0 +1,66 @@
+package com.leboncoin.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+
+import java.util.List;
+
+/**
+ * Demande d'URLs d'envoi direct : une entrée par image, décrite par son type,
+ * sa taille et son empreinte SHA-256 calculées côté client.
+ */
+public class ImageUploadRequestDTO {
+
+    @NotEmpty(message = "At least one file is required")
+    private List<@Valid FileDTO> files;
+
+    public List<FileDTO> getFiles() {
+        return files;
+    }
+
+    public void setFiles(List<FileDTO> files) {
+        this.files = files;
+    }
+
+    public static class FileDTO {
+
+        @NotBlank(message = "Content type is required")
+        private String contentType;
+
+        @NotNull(message = "Size is required")
+        @Positive(message = "Size must be positive")
+        private Long size;
+
+        @NotBlank(message = "SHA-256 is required")
+        @Pattern(regexp = "[0-9a-fA-F]{64}", message = "SHA-256 must be 64 hexadecimal characters")
+        private String sha256;
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public void setContentType(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public Long getSize() {
+            return size;
+        }
+
+        public void setSize(Long size) {
+            this.size = size;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public void setSha256(String sha256) {
+            this.sha256 = sha256;
+        }
+    }
+}
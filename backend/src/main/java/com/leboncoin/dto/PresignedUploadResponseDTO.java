@@ -0,0 +1,88 @@
+package com.leboncoin.dto;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class PresignedUploadResponseDTO {
+
+    private List<PresignedUploadDTO> uploads = new ArrayList<>();
+
+    public List<PresignedUploadDTO> getUploads() {
+        return uploads;
+    }
+
+    public void setUploads(List<PresignedUploadDTO> uploads) {
+        this.uploads = uploads;
+    }
+
+    public void addUpload(PresignedUploadDTO dto) {
+        if (uploads == null) {
+            uploads = new ArrayList<>();
+        }
+        uploads.add(dto);
+    }
+
+    public static class PresignedUploadDTO {
+
+        private String objectName;
+        // Absente quand l'image est déjà stockée : rien à envoyer
+        private String uploadUrl;
+        private Map<String, String> headers;
+        private Instant expiresAt;
+        private boolean alreadyUploaded;
+
+        public PresignedUploadDTO() {
+        }
+
+        public PresignedUploadDTO(String objectName, String uploadUrl, Map<String, String> headers, Instant expiresAt,
+                boolean alreadyUploaded) {
+            this.objectName = objectName;
+            this.uploadUrl = uploadUrl;
+            this.headers = headers;
+            this.expiresAt = expiresAt;
+            this.alreadyUploaded = alreadyUploaded;
+        }
+
+        public String getObjectName() {
+            return objectName;
+        }
+
+        public void setObjectName(String objectName) {
+            this.objectName = objectName;
+        }
+
+        public String getUploadUrl() {
+            return uploadUrl;
+        }
+
+        public void setUploadUrl(String uploadUrl) {
+            this.uploadUrl = uploadUrl;
+        }
+
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        public void setHeaders(Map<String, String> headers) {
+            this.headers = headers;
+        }
+
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+
+        public void setExpiresAt(Instant expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+
+        public boolean isAlreadyUploaded() {
+            return alreadyUploaded;
+        }
+
+        public void setAlreadyUploaded(boolean alreadyUploaded) {
+            this.alreadyUploaded = alreadyUploaded;
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package com.leboncoin.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+
 import java.util.List;
 
 @Entity
 @Table(name = "ads")
 public class Ad {
 
+    // Séquence "pooled" (ids réservés par 50) : contrairement à IDENTITY,
+    // permet à Hibernate de regrouper les INSERT en batch JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ads_seq")
+    @SequenceGenerator(name = "ads_seq", sequenceName = "ads_seq", allocationSize = 50)
     private Integer id;
 
     @Column(nullable = false)
@@ -19,16 +24,22 @@ public class Ad {
 
     private Integer price;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "ad_images", joinColumns = @JoinColumn(name = "ad_id"))
+    // Chargées à la demande, par lots, pour éviter un SELECT par annonce
+    @ElementCollection(fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
+    // Index sur la clé : les objets partagés entre annonces sont comptés avant suppression
+    @CollectionTable(name = "ad_images", joinColumns = @JoinColumn(name = "ad_id"),
+            indexes = @Index(name = "idx_ad_images_image_url", columnList = "image_url"))
+    // Position explicite : l'ordre choisi par le vendeur est conservé en liste comme en détail
+    @OrderColumn(name = "image_order")
     @Column(name = "image_url")
     private List<String> images;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", nullable = false)
     private Category category;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
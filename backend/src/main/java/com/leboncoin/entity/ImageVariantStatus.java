@@ -0,0 +1,74 @@
+package com.leboncoin.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
+
+/**
+ * Résultat de la génération des variantes d'une image. Absence de ligne =
+ * génération pas encore faite ; UNSUPPORTED et FAILED sont définitifs, ces
+ * images restent servies sans variantes.
+ */
+@Entity
+@Table(name = "image_variants")
+public class ImageVariantStatus {
+
+    @Id
+    @Column(length = 1024)
+    private String objectName;
+
+    @Column(nullable = false)
+    private LocalDateTime generatedAt;
+
+    // Les lignes antérieures à cette colonne désignent toutes des variantes générées
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    @ColumnDefault("'READY'")
+    private State state = State.READY;
+
+    public enum State {
+        READY,
+        UNSUPPORTED,
+        FAILED
+    }
+
+    // Constructors
+    public ImageVariantStatus() {
+    }
+
+    public ImageVariantStatus(String objectName) {
+        this(objectName, State.READY);
+    }
+
+    public ImageVariantStatus(String objectName, State state) {
+        this.objectName = objectName;
+        this.state = state;
+        this.generatedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public String getObjectName() {
+        return objectName;
+    }
+
+    public void setObjectName(String objectName) {
+        this.objectName = objectName;
+    }
+
+    public LocalDateTime getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public void setGeneratedAt(LocalDateTime generatedAt) {
+        this.generatedAt = generatedAt;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,99 @@
+package com.leboncoin.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Outbox des suppressions d'objets de stockage : écrite dans la même
+ * transaction que la modification d'annonce, vidée par StorageDeletionWorker.
+ */
+@Entity
+@Table(name = "storage_deletion_outbox", indexes = {
+        @Index(name = "idx_storage_deletion_next_attempt", columnList = "nextAttemptAt"),
+        @Index(name = "idx_storage_deletion_object_name", columnList = "objectName")
+})
+public class StorageDeletion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "storage_deletion_seq")
+    @SequenceGenerator(name = "storage_deletion_seq", sequenceName = "storage_deletion_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, length = 1024)
+    private String objectName;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    // Constructors
+    public StorageDeletion() {
+    }
+
+    public StorageDeletion(String objectName) {
+        this(objectName, LocalDateTime.now());
+    }
+
+    public StorageDeletion(String objectName, LocalDateTime notBefore) {
+        this.objectName = objectName;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = notBefore;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getObjectName() {
+        return objectName;
+    }
+
+    public void setObjectName(String objectName) {
+        this.objectName = objectName;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
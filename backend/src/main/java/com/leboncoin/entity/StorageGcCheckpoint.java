@@ -0,0 +1,87 @@
+package com.leboncoin.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Avancement du ramasse-miettes des objets orphelins : dernière clé examinée
+ * du cycle en cours (null au début d'un cycle), et instance qui le détient
+ * jusqu'à claimedUntil.
+ */
+@Entity
+@Table(name = "storage_gc_checkpoint")
+public class StorageGcCheckpoint {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(length = 1024)
+    private String lastKey;
+
+    private LocalDateTime cycleStartedAt;
+
+    private LocalDateTime updatedAt;
+
+    @Column(length = 36)
+    private String claimToken;
+
+    private LocalDateTime claimedUntil;
+
+    // Constructors
+    public StorageGcCheckpoint() {
+    }
+
+    public StorageGcCheckpoint(String name) {
+        this.name = name;
+    }
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getLastKey() {
+        return lastKey;
+    }
+
+    public void setLastKey(String lastKey) {
+        this.lastKey = lastKey;
+    }
+
+    public LocalDateTime getCycleStartedAt() {
+        return cycleStartedAt;
+    }
+
+    public void setCycleStartedAt(LocalDateTime cycleStartedAt) {
+        this.cycleStartedAt = cycleStartedAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public String getClaimToken() {
+        return claimToken;
+    }
+
+    public void setClaimToken(String claimToken) {
+        this.claimToken = claimToken;
+    }
+
+    public LocalDateTime getClaimedUntil() {
+        return claimedUntil;
+    }
+
+    public void setClaimedUntil(LocalDateTime claimedUntil) {
+        this.claimedUntil = claimedUntil;
+    }
+}
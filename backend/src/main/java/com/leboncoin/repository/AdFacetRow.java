@@ -0,0 +1,12 @@
+package com.leboncoin.repository;
+
+import com.leboncoin.entity.CategoryEnum;
+
+/**
+ * Ligne de l'agrégation des facettes : nombre d'annonces pour un couple
+ * (catégorie, tranche de prix). La tranche vaut -1 pour un prix absent.
+ */
+public record AdFacetRow(CategoryEnum category, int bucket, long count) {
+
+    public static final int NO_PRICE_BUCKET = -1;
+}
@@ -0,0 +1,9 @@
+package com.leboncoin.repository;
+
+import com.leboncoin.entity.CategoryEnum;
+
+/**
+ * Colonnes nécessaires à l'index de filtrage en mémoire.
+ */
+public record AdIndexRow(Integer id, Integer price, CategoryEnum category) {
+}
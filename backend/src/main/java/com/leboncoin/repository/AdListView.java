@@ -0,0 +1,13 @@
+package com.leboncoin.repository;
+
+import com.leboncoin.entity.CategoryEnum;
+
+import java.util.List;
+
+/**
+ * Projection en lecture seule d'une annonce pour les listes / recherches :
+ * uniquement les colonnes exposées par AdDTO, images dans l'ordre de l'annonce.
+ */
+public record AdListView(Integer id, String title, String description, Integer price, CategoryEnum category,
+        Integer userId, String userEmail, List<String> images) {
+}
@@ -1,10 +1,28 @@
 package com.leboncoin.repository;
 
 import com.leboncoin.entity.Ad;
+import jakarta.persistence.QueryHint;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 /**
  * 💾 REPOSITORY - Couche d'accès aux données
  *
@@ -19,5 +37,108 @@ import org.springframework.stereotype.Repository;
  * Flux : Service → Repository → PostgreSQL
  */
 @Repository
-public interface AdRepository extends JpaRepository<Ad, Integer>, JpaSpecificationExecutor<Ad> {
+public interface AdRepository extends JpaRepository<Ad, Integer>, JpaSpecificationExecutor<Ad>, AdSearchRepository {
+
+    // Plan de chargement des listes : catégorie et auteur en jointure, images
+    // chargées par lots (@BatchSize sur Ad.images)
+    String LIST_GRAPH_CATEGORY = "category";
+    String LIST_GRAPH_USER = "user";
+
+    @Override
+    @EntityGraph(attributePaths = {LIST_GRAPH_CATEGORY, LIST_GRAPH_USER})
+    List<Ad> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = {LIST_GRAPH_CATEGORY, LIST_GRAPH_USER})
+    Page<Ad> findAll(Specification<Ad> spec, Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = {LIST_GRAPH_CATEGORY, LIST_GRAPH_USER})
+    Optional<Ad> findById(Integer id);
+
+    /**
+     * Parcours en lecture seule de toutes les annonces via un curseur JDBC
+     * (fetch size fixe) : à consommer dans une transaction et à fermer.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select a from Ad a join fetch a.category join fetch a.user order by a.id")
+    Stream<Ad> streamAll();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.leboncoin.repository.AdIndexRow(a.id, a.price, c.name) from Ad a join a.category c order by a.id")
+    Stream<AdIndexRow> streamIndexRows();
+
+    /**
+     * Critères de recherche pour les requêtes fluentes (pagination par
+     * curseur), avec le même prédicat de titre que la recherche classée :
+     * plein texte quand il est disponible (plus la sous-chaîne du titre si
+     * l'index trigramme existe), sinon sous-chaîne du titre.
+     */
+    static Specification<Ad> matching(AdSearchFilter filter, SearchCapabilities capabilities) {
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.getCategory() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("category").get("name"), filter.getCategory()));
+            }
+            if (filter.hasTitle()) {
+                Predicate titleMatch = criteriaBuilder.like(criteriaBuilder.lower(root.get("title")),
+                        "%" + filter.getTitle() + "%");
+                if (capabilities.isFullTextAvailable()) {
+                    // search_vector (db/002_search_schema.sql) n'est pas mappée : correspondance par id
+                    HibernateCriteriaBuilder builder = (HibernateCriteriaBuilder) criteriaBuilder;
+                    Predicate fullText = builder.isTrue(builder.sql("""
+                            (? in (select s.id from ads s
+                                   where s.search_vector @@ websearch_to_tsquery(cast(? as regconfig), ?)))""",
+                            Boolean.class, root.get("id"), builder.value(capabilities.getTextSearchConfig()),
+                            builder.value(filter.getTitle())));
+                    titleMatch = capabilities.isTrigramAvailable() ? builder.or(fullText, titleMatch) : fullText;
+                }
+                predicates.add(titleMatch);
+            }
+            if (filter.getMinPrice() != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("price"), filter.getMinPrice()));
+            }
+            if (filter.getMaxPrice() != null) {
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("price"), filter.getMaxPrice()));
+            }
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Équivalent du plan de chargement pour les requêtes fluentes (findBy /
+     * scroll), sur lesquelles @EntityGraph ne s'applique pas.
+     */
+    static Specification<Ad> fetchListAssociations() {
+        return (root, query, criteriaBuilder) -> {
+            if (!Long.class.equals(query.getResultType())) {
+                root.fetch(LIST_GRAPH_CATEGORY, JoinType.INNER);
+                root.fetch(LIST_GRAPH_USER, JoinType.INNER);
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Clés encore référencées par au moins une annonce parmi celles données.
+     */
+    @Query(value = "SELECT DISTINCT image_url FROM ad_images WHERE image_url IN (:objectNames)", nativeQuery = true)
+    List<String> findReferencedImages(@Param("objectNames") Collection<String> objectNames);
+
+    /**
+     * Page de clés d'images référencées, dans l'ordre des clés, après la clé
+     * donnée (parcours par l'index sur image_url, une requête courte par page).
+     */
+    @Query(value = "SELECT image_url FROM ad_images WHERE image_url > :after ORDER BY image_url LIMIT :limit",
+            nativeQuery = true)
+    List<String> findImageKeysAfter(@Param("after") String after, @Param("limit") int limit);
+
+    @Query(value = "SELECT count(*) FROM ad_images", nativeQuery = true)
+    long countImageKeys();
 }
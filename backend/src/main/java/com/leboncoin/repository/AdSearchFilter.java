@@ -0,0 +1,65 @@
+package com.leboncoin.repository;
+
+import com.leboncoin.entity.CategoryEnum;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Locale;
+
+/**
+ * Critères de recherche normalisés (chaînes vides ignorées, titre en minuscules).
+ */
+public final class AdSearchFilter {
+
+    private final CategoryEnum category;
+    private final String title;
+    private final Integer minPrice;
+    private final Integer maxPrice;
+
+    public AdSearchFilter(CategoryEnum category, String title, Integer minPrice, Integer maxPrice) {
+        this.category = category;
+        this.title = StringUtils.hasText(title) ? title.trim().toLowerCase(Locale.ROOT) : null;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    /**
+     * Critères issus des paramètres de requête ; une catégorie inconnue est
+     * une erreur du client (400).
+     */
+    public static AdSearchFilter of(String category, String title, Integer minPrice, Integer maxPrice) {
+        return new AdSearchFilter(parseCategory(category), title, minPrice, maxPrice);
+    }
+
+    private static CategoryEnum parseCategory(String category) {
+        if (!StringUtils.hasText(category)) {
+            return null;
+        }
+        try {
+            return CategoryEnum.valueOf(category.trim());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown category: " + category.trim());
+        }
+    }
+
+    public CategoryEnum getCategory() {
+        return category;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Integer getMinPrice() {
+        return minPrice;
+    }
+
+    public Integer getMaxPrice() {
+        return maxPrice;
+    }
+
+    public boolean hasTitle() {
+        return title != null;
+    }
+}
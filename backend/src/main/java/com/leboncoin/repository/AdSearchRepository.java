@@ -0,0 +1,27 @@
+package com.leboncoin.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * Chemin de lecture par projection pour la recherche d'annonces : aucune
+ * entité gérée, donc ni contexte de persistance ni dirty checking.
+ */
+public interface AdSearchRepository {
+
+    Page<AdListView> searchListViews(AdSearchFilter filter, Pageable pageable);
+
+    /**
+     * Hydrate les projections des ids donnés, dans l'ordre de la liste.
+     */
+    List<AdListView> findListViewsByIds(List<Integer> ids);
+
+    /**
+     * Compte les annonces par catégorie et par tranche de prix en une seule
+     * agrégation groupée. Les bornes doivent être triées et distinctes : la
+     * tranche i couvre [bornes[i-1], bornes[i][.
+     */
+    List<AdFacetRow> countFacets(AdSearchFilter filter, List<Integer> priceBounds);
+}
@@ -0,0 +1,257 @@
+package com.leboncoin.repository;
+
+import com.leboncoin.entity.CategoryEnum;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+class AdSearchRepositoryImpl implements AdSearchRepository {
+
+    private static final String LIST_VIEW_SELECT = """
+            select a.id, a.title, a.description, a.price, c.name, u.id, u.email
+            from Ad a
+            join a.category c
+            join a.user u
+            """;
+
+    private static final String LIST_VIEW_ORDER = " order by a.id desc";
+
+    // Images de toute la page en une requête, dans l'ordre de chaque annonce
+    private static final String PAGE_IMAGES = """
+            select a.id, img
+            from Ad a
+            join a.images img
+            where a.id in :ids
+            order by a.id, index(img)
+            """;
+
+    private static final String COUNT_SELECT = "select count(a) from Ad a join a.category c";
+
+    // Recherche classée par pertinence (PostgreSQL) : correspondance plein texte
+    // sur titre + description, ou sous-chaîne du titre via l'index trigramme
+    private static final String RANKED_FROM = """
+             from ads a
+             join categories c on c.id = a.category_id
+             join users u on u.id = a.user_id
+            """;
+
+    private static final String FULL_TEXT_MATCH =
+            " where (a.search_vector @@ websearch_to_tsquery(cast(:config as regconfig), :query)";
+
+    private static final String TITLE_MATCH = " or lower(a.title) like :title";
+
+    private static final String RANKED_SELECT = """
+            select r.id, r.title, r.description, r.price, r.category, r.user_id, r.email
+            from (
+                select a.id, a.title, a.description, a.price, c.name as category, u.id as user_id, u.email,
+                       ts_rank(a.search_vector, websearch_to_tsquery(cast(:config as regconfig), :query)) as rank
+            """;
+
+    private static final String RANKED_ORDER = """
+                order by rank desc, a.id desc
+                limit :limit offset :offset
+            ) r
+            order by r.rank desc, r.id desc
+            """;
+
+    private final EntityManager entityManager;
+    private final SearchCapabilities searchCapabilities;
+
+    AdSearchRepositoryImpl(EntityManager entityManager, SearchCapabilities searchCapabilities) {
+        this.entityManager = entityManager;
+        this.searchCapabilities = searchCapabilities;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<AdListView> searchListViews(AdSearchFilter filter, Pageable pageable) {
+        if (filter.hasTitle() && searchCapabilities.isFullTextAvailable()) {
+            return searchRanked(filter, pageable);
+        }
+
+        Map<String, Object> parameters = new HashMap<>();
+        String where = buildWhereClause(filter, parameters);
+
+        TypedQuery<Object[]> query = entityManager.createQuery(LIST_VIEW_SELECT + where + LIST_VIEW_ORDER, Object[].class);
+        parameters.forEach(query::setParameter);
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+        List<AdListView> content = toListViews(query.getResultList());
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            TypedQuery<Long> countQuery = entityManager.createQuery(COUNT_SELECT + where, Long.class);
+            parameters.forEach(countQuery::setParameter);
+            return countQuery.getSingleResult();
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<AdListView> findListViewsByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<Object[]> rows = entityManager
+                .createQuery(LIST_VIEW_SELECT + " where a.id in :ids", Object[].class)
+                .setParameter("ids", ids)
+                .getResultList();
+        Map<Integer, AdListView> byId = toListViews(rows).stream()
+                .collect(Collectors.toMap(AdListView::id, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<AdFacetRow> countFacets(AdSearchFilter filter, List<Integer> priceBounds) {
+        // Bornes entières validées : inlinées pour que SELECT et GROUP BY soient identiques
+        String bucket = buildPriceBucketExpression(priceBounds);
+        Map<String, Object> parameters = new HashMap<>();
+        Query query;
+        if (filter.hasTitle() && searchCapabilities.isFullTextAvailable()) {
+            String from = rankedFrom(filter, parameters);
+            String filters = buildNativeFilters(filter, parameters);
+            query = entityManager.createNativeQuery("select c.name, " + bucket + ", count(*)"
+                    + from + filters + " group by c.name, " + bucket);
+        } else {
+            String where = buildWhereClause(filter, parameters);
+            query = entityManager.createQuery("select c.name, " + bucket + ", count(a) from Ad a join a.category c"
+                    + where + " group by c.name, " + bucket);
+        }
+        parameters.forEach(query::setParameter);
+
+        return ((List<Object[]>) query.getResultList()).stream()
+                .map(row -> new AdFacetRow(
+                        toCategory(row[0]),
+                        ((Number) row[1]).intValue(),
+                        ((Number) row[2]).longValue()))
+                .toList();
+    }
+
+    private String buildPriceBucketExpression(List<Integer> priceBounds) {
+        StringBuilder expression = new StringBuilder("case when a.price is null then ")
+                .append(AdFacetRow.NO_PRICE_BUCKET);
+        for (int i = 0; i < priceBounds.size(); i++) {
+            expression.append(" when a.price < ").append(priceBounds.get(i).intValue()).append(" then ").append(i);
+        }
+        return expression.append(" else ").append(priceBounds.size()).append(" end").toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Page<AdListView> searchRanked(AdSearchFilter filter, Pageable pageable) {
+        Map<String, Object> parameters = new HashMap<>();
+        String from = rankedFrom(filter, parameters);
+        String filters = buildNativeFilters(filter, parameters);
+
+        Query query = entityManager.createNativeQuery(RANKED_SELECT + from + filters + RANKED_ORDER);
+        parameters.forEach(query::setParameter);
+        query.setParameter("limit", pageable.getPageSize());
+        query.setParameter("offset", pageable.getOffset());
+        List<AdListView> content = toListViews((List<Object[]>) query.getResultList());
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            Query countQuery = entityManager.createNativeQuery("select count(*)" + from + filters);
+            parameters.forEach(countQuery::setParameter);
+            return ((Number) countQuery.getSingleResult()).longValue();
+        });
+    }
+
+    /**
+     * Lignes (id, titre, description, prix, catégorie, vendeur, email) JPQL
+     * ou natives, complétées par les images de la page lues en une requête.
+     */
+    private List<AdListView> toListViews(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        List<Integer> ids = rows.stream().map(row -> ((Number) row[0]).intValue()).toList();
+        Map<Integer, List<String>> images = new HashMap<>();
+        for (Object[] image : entityManager.createQuery(PAGE_IMAGES, Object[].class)
+                .setParameter("ids", ids)
+                .getResultList()) {
+            images.computeIfAbsent((Integer) image[0], id -> new ArrayList<>()).add((String) image[1]);
+        }
+        return rows.stream()
+                .map(row -> {
+                    Integer id = ((Number) row[0]).intValue();
+                    return new AdListView(
+                            id,
+                            (String) row[1],
+                            (String) row[2],
+                            row[3] != null ? ((Number) row[3]).intValue() : null,
+                            toCategory(row[4]),
+                            ((Number) row[5]).intValue(),
+                            (String) row[6],
+                            images.getOrDefault(id, List.of()));
+                })
+                .toList();
+    }
+
+    private static CategoryEnum toCategory(Object value) {
+        return value instanceof CategoryEnum category ? category : CategoryEnum.valueOf((String) value);
+    }
+
+    // Sans index trigramme, la sous-chaîne du titre imposerait un parcours complet : plein texte seul
+    private String rankedFrom(AdSearchFilter filter, Map<String, Object> parameters) {
+        parameters.put("config", searchCapabilities.getTextSearchConfig());
+        parameters.put("query", filter.getTitle());
+        if (!searchCapabilities.isTrigramAvailable()) {
+            return RANKED_FROM + FULL_TEXT_MATCH + ")";
+        }
+        parameters.put("title", "%" + filter.getTitle() + "%");
+        return RANKED_FROM + FULL_TEXT_MATCH + TITLE_MATCH + ")";
+    }
+
+    private String buildNativeFilters(AdSearchFilter filter, Map<String, Object> parameters) {
+        StringBuilder where = new StringBuilder();
+        if (filter.getCategory() != null) {
+            where.append(" and c.name = :category");
+            parameters.put("category", filter.getCategory().name());
+        }
+        if (filter.getMinPrice() != null) {
+            where.append(" and a.price >= :minPrice");
+            parameters.put("minPrice", filter.getMinPrice());
+        }
+        if (filter.getMaxPrice() != null) {
+            where.append(" and a.price <= :maxPrice");
+            parameters.put("maxPrice", filter.getMaxPrice());
+        }
+        return where.toString();
+    }
+
+    private String buildWhereClause(AdSearchFilter filter, Map<String, Object> parameters) {
+        StringBuilder where = new StringBuilder(" where 1 = 1");
+        if (filter.getCategory() != null) {
+            where.append(" and c.name = :category");
+            parameters.put("category", filter.getCategory());
+        }
+        if (filter.hasTitle()) {
+            where.append(" and lower(a.title) like :title");
+            parameters.put("title", "%" + filter.getTitle() + "%");
+        }
+        if (filter.getMinPrice() != null) {
+            where.append(" and a.price >= :minPrice");
+            parameters.put("minPrice", filter.getMinPrice());
+        }
+        if (filter.getMaxPrice() != null) {
+            where.append(" and a.price <= :maxPrice");
+            parameters.put("maxPrice", filter.getMaxPrice());
+        }
+        return where.toString();
+    }
+}
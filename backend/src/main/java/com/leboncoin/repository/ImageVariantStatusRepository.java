@@ -0,0 +1,24 @@
+package com.leboncoin.repository;
+
+import com.leboncoin.entity.ImageVariantStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ImageVariantStatusRepository extends JpaRepository<ImageVariantStatus, String> {
+
+    @Query("select v.objectName from ImageVariantStatus v where v.objectName in :objectNames and v.state = 'READY'")
+    List<String> findGeneratedAmong(@Param("objectNames") Collection<String> objectNames);
+
+    List<ImageVariantStatus> findByObjectNameIn(Collection<String> objectNames);
+
+    @Modifying
+    @Query("delete from ImageVariantStatus v where v.objectName in :objectNames")
+    int deleteAllByObjectNameIn(@Param("objectNames") Collection<String> objectNames);
+}
@@ -0,0 +1,37 @@
+package com.leboncoin.repository;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Fonctionnalités de recherche PostgreSQL détectées au démarrage par
+ * SearchCapabilitiesDetector. Tant que le plein texte n'est pas disponible,
+ * la recherche par titre reste sur le chemin LIKE. Sans index trigramme, la
+ * recherche plein texte n'y ajoute pas la sous-chaîne du titre, qui
+ * imposerait un parcours complet de la table.
+ */
+@Component
+public class SearchCapabilities {
+
+    private volatile String textSearchConfig;
+    private volatile boolean trigramAvailable;
+
+    public boolean isFullTextAvailable() {
+        return textSearchConfig != null;
+    }
+
+    public String getTextSearchConfig() {
+        return textSearchConfig;
+    }
+
+    public void enableFullText(String textSearchConfig) {
+        this.textSearchConfig = textSearchConfig;
+    }
+
+    public boolean isTrigramAvailable() {
+        return trigramAvailable;
+    }
+
+    public void enableTrigram() {
+        this.trigramAvailable = true;
+    }
+}
@@ -0,0 +1,36 @@
+package com.leboncoin.repository;
+
+import com.leboncoin.entity.StorageDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StorageDeletionRepository extends JpaRepository<StorageDeletion, Long> {
+
+    /**
+     * Verrouille un lot de suppressions échues ; SKIP LOCKED permet à plusieurs
+     * instances de vider l'outbox en parallèle sans se marcher dessus.
+     */
+    @Query(value = """
+            SELECT * FROM storage_deletion_outbox
+            WHERE next_attempt_at <= :now
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED""", nativeQuery = true)
+    List<StorageDeletion> lockDueBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Annule les suppressions en attente d'un objet de nouveau référencé.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from StorageDeletion d where d.objectName = :objectName")
+    int deletePendingFor(@Param("objectName") String objectName);
+}
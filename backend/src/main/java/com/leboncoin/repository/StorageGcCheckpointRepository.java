@@ -0,0 +1,59 @@
+package com.leboncoin.repository;
+
+import com.leboncoin.entity.StorageGcCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface StorageGcCheckpointRepository extends JpaRepository<StorageGcCheckpoint, String> {
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(value = "INSERT INTO storage_gc_checkpoint (name) VALUES (:name) ON CONFLICT DO NOTHING", nativeQuery = true)
+    void ensureExists(@Param("name") String name);
+
+    /**
+     * Réserve le point de reprise jusqu'à until ; 0 si une autre instance le
+     * détient encore.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            update StorageGcCheckpoint c set c.claimToken = :token, c.claimedUntil = :until
+            where c.name = :name and (c.claimedUntil is null or c.claimedUntil < :now)""")
+    int claim(@Param("name") String name, @Param("token") String token, @Param("now") LocalDateTime now,
+            @Param("until") LocalDateTime until);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update StorageGcCheckpoint c set c.cycleStartedAt = :now
+            where c.name = :name and c.claimToken = :token and c.lastKey is null""")
+    int startCycle(@Param("name") String name, @Param("token") String token, @Param("now") LocalDateTime now);
+
+    /**
+     * Enregistre la dernière clé examinée et prolonge la réservation ; 0 si
+     * elle a expiré et a été reprise par une autre instance.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            update StorageGcCheckpoint c set c.lastKey = :lastKey, c.updatedAt = :now, c.claimedUntil = :until
+            where c.name = :name and c.claimToken = :token""")
+    int advance(@Param("name") String name, @Param("token") String token, @Param("lastKey") String lastKey,
+            @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update StorageGcCheckpoint c set c.claimToken = null, c.claimedUntil = null
+            where c.name = :name and c.claimToken = :token""")
+    int release(@Param("name") String name, @Param("token") String token);
+}
@@ -0,0 +1,70 @@
+package com.leboncoin.security;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Calculs bcrypt exécutés sur un pool dédié et borné : une rafale de
+ * connexions occupe au plus ce pool au lieu des threads de requête, et les
+ * demandes en excès sont refusées (503) plutôt que mises en attente.
+ */
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ExecutorService executor;
+    // Comparé quand l'email est inconnu, pour un temps de réponse identique
+    private final String dummyHash;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+            @Qualifier("passwordHashExecutor") ExecutorService executor) {
+        this.passwordEncoder = passwordEncoder;
+        this.executor = executor;
+        this.dummyHash = passwordEncoder.encode("dummy-password");
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword,
+                encodedPassword != null ? encodedPassword : dummyHash));
+    }
+
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Vrai si le hash a été produit avec un coût inférieur au coût configuré.
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many concurrent logins");
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Password check interrupted");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException
+                    ? runtimeException
+                    : new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
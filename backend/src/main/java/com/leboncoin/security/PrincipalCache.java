@@ -0,0 +1,62 @@
+package com.leboncoin.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Principaux authentifiés par sujet de JWT, pour ne pas relire l'utilisateur
+ * en base à chaque requête. Les entrées sont gardées sans mot de passe et
+ * expirent après un délai court (jwt.principal-cache.ttl), qui borne le
+ * retard de prise en compte d'un changement de compte.
+ *
+ * L'invalidation sur UserCredentialsChangedEvent, locale au nœud, est un
+ * point d'accroche pour les futurs flux (changement de mot de passe,
+ * désactivation) : son seul émetteur actuel est la mise à niveau du hachage
+ * bcrypt à la connexion, qui ne change rien au principal.
+ */
+@Component
+public class PrincipalCache {
+
+    private final UserDetailsService userDetailsService;
+    private final Cache<String, UserDetails> principals;
+
+    public PrincipalCache(UserDetailsService userDetailsService,
+            @Value("${jwt.principal-cache.max-size:10000}") long maxSize,
+            @Value("${jwt.principal-cache.ttl:PT5M}") Duration ttl) {
+        this(userDetailsService, maxSize, ttl, Ticker.systemTicker());
+    }
+
+    PrincipalCache(UserDetailsService userDetailsService, long maxSize, Duration ttl, Ticker ticker) {
+        this.userDetailsService = userDetailsService;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .build();
+    }
+
+    public UserDetails get(String subject) {
+        return principals.get(subject, this::load);
+    }
+
+    @EventListener
+    public void onCredentialsChanged(UserCredentialsChangedEvent event) {
+        principals.invalidate(event.getEmail());
+    }
+
+    private UserDetails load(String subject) {
+        UserDetails userDetails = userDetailsService.loadUserByUsername(subject);
+        return User.withUserDetails(userDetails)
+                .password("")
+                .build();
+    }
+}
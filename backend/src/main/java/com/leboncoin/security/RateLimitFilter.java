@@ -0,0 +1,87 @@
+package com.leboncoin.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.leboncoin.config.RateLimitProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limitation de débit en mémoire des routes coûteuses (bcrypt, gros corps).
+ *
+ * Placé après le filtre JWT : un utilisateur authentifié a ses propres seaux,
+ * les autres requêtes sont comptées par adresse IP. Les seaux inactifs sont
+ * évincés, et leur nombre est borné.
+ *
+ * L'adresse IP est celle du client d'origine derrière un proxy de confiance
+ * (server.forward-headers-strategy) : sinon tous les anonymes partageraient
+ * le seau du proxy.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final List<Route> routes;
+    private final Cache<String, TokenBucket> buckets;
+
+    public RateLimitFilter(RateLimitProperties properties) {
+        this.routes = properties.getRules().stream()
+                .map(rule -> new Route(rule, new AntPathRequestMatcher(rule.getPath(), rule.getMethod())))
+                .toList();
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxBuckets())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        for (Route route : routes) {
+            if (!route.matcher().matches(request)) {
+                continue;
+            }
+            RateLimitProperties.Rule rule = route.rule();
+            long now = System.nanoTime();
+            TokenBucket bucket = buckets.get(rule.getName() + "|" + clientKey(request),
+                    key -> new TokenBucket(rule.getCapacity(), rule.getRefillPeriod().toNanos(), now));
+            long waitNanos = bucket.tryConsume(now);
+            if (waitNanos > 0) {
+                long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+                response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+                // Réponse écrite directement : un sendError repasserait par la sécurité via /error
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+                response.getWriter().write("Too many requests");
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private record Route(RateLimitProperties.Rule rule, AntPathRequestMatcher matcher) {
+    }
+}
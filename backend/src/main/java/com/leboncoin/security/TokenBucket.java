@@ -0,0 +1,41 @@
+package com.leboncoin.security;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Seau à jetons sans verrou : l'état (jetons, date du dernier remplissage)
+ * est remplacé par compare-and-set.
+ */
+class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final AtomicReference<State> state;
+
+    TokenBucket(int capacity, long refillPeriodNanos, long now) {
+        this.capacity = capacity;
+        this.tokensPerNano = (double) capacity / refillPeriodNanos;
+        this.state = new AtomicReference<>(new State(capacity, now));
+    }
+
+    /**
+     * Consomme un jeton. Retourne 0 en cas de succès, sinon le délai en
+     * nanosecondes avant qu'un jeton soit disponible.
+     */
+    long tryConsume(long now) {
+        while (true) {
+            State current = state.get();
+            long elapsed = Math.max(0, now - current.updatedAt());
+            double tokens = Math.min(capacity, current.tokens() + elapsed * tokensPerNano);
+            if (tokens < 1) {
+                return (long) Math.ceil((1 - tokens) / tokensPerNano);
+            }
+            if (state.compareAndSet(current, new State(tokens - 1, Math.max(now, current.updatedAt())))) {
+                return 0;
+            }
+        }
+    }
+
+    private record State(double tokens, long updatedAt) {
+    }
+}
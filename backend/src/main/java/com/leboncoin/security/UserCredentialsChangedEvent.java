@@ -0,0 +1,18 @@
+package com.leboncoin.security;
+
+/**
+ * Publié quand le mot de passe ou l'état d'un compte change : le principal
+ * mis en cache pour ce compte doit être rechargé.
+ */
+public class UserCredentialsChangedEvent {
+
+    private final String email;
+
+    public UserCredentialsChangedEvent(String email) {
+        this.email = email;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+}
@@ -0,0 +1,62 @@
+package com.leboncoin.service;
+
+import com.leboncoin.entity.CategoryEnum;
+
+/**
+ * Publié par AdService à chaque création, modification ou suppression
+ * d'annonce. Les valeurs "previous" sont nulles pour une création, les
+ * valeurs courantes sont nulles pour une suppression.
+ */
+public class AdChangedEvent {
+
+    private final Integer adId;
+    private final CategoryEnum previousCategory;
+    private final Integer previousPrice;
+    private final CategoryEnum category;
+    private final Integer price;
+
+    public AdChangedEvent(Integer adId, CategoryEnum previousCategory, Integer previousPrice,
+            CategoryEnum category, Integer price) {
+        this.adId = adId;
+        this.previousCategory = previousCategory;
+        this.previousPrice = previousPrice;
+        this.category = category;
+        this.price = price;
+    }
+
+    public static AdChangedEvent created(Integer adId, CategoryEnum category, Integer price) {
+        return new AdChangedEvent(adId, null, null, category, price);
+    }
+
+    public static AdChangedEvent deleted(Integer adId, CategoryEnum category, Integer price) {
+        return new AdChangedEvent(adId, category, price, null, null);
+    }
+
+    public Integer getAdId() {
+        return adId;
+    }
+
+    public CategoryEnum getPreviousCategory() {
+        return previousCategory;
+    }
+
+    public Integer getPreviousPrice() {
+        return previousPrice;
+    }
+
+    public CategoryEnum getCategory() {
+        return category;
+    }
+
+    public Integer getPrice() {
+        return price;
+    }
+
+    public boolean isCreation() {
+        return previousCategory == null;
+    }
+
+    public boolean isDeletion() {
+        return category == null;
+    }
+}
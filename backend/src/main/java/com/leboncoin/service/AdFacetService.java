@@ -0,0 +1,93 @@
+package com.leboncoin.service;
+
+import com.leboncoin.config.AdSearchProperties;
+import com.leboncoin.dto.AdFacetsDTO;
+import com.leboncoin.entity.CategoryEnum;
+import com.leboncoin.repository.AdFacetRow;
+import com.leboncoin.repository.AdRepository;
+import com.leboncoin.repository.AdSearchFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Objects;
+
+@Service
+public class AdFacetService {
+
+    private final AdRepository adRepository;
+    private final AdFacetSummary adFacetSummary;
+    private final AdSearchProperties properties;
+
+    public AdFacetService(AdRepository adRepository, AdFacetSummary adFacetSummary, AdSearchProperties properties) {
+        this.adRepository = adRepository;
+        this.adFacetSummary = adFacetSummary;
+        this.properties = properties;
+    }
+
+    public AdFacetsDTO getFacets(String category, String title, Integer minPrice, Integer maxPrice,
+            List<Integer> priceBounds) {
+        AdSearchFilter filter = AdSearchFilter.of(category, title, minPrice, maxPrice);
+        List<Integer> bounds = priceBounds == null || priceBounds.isEmpty()
+                ? adFacetSummary.getPriceBounds()
+                : normalizeBounds(priceBounds);
+        if (bounds.size() > properties.getFacets().getMaxPriceBounds()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Too many price bounds (max "
+                    + properties.getFacets().getMaxPriceBounds() + ")");
+        }
+
+        // Facettes non filtrées : servies en O(1) par le résumé maintenu en mémoire
+        if (isUnfiltered(filter) && bounds.equals(adFacetSummary.getPriceBounds()) && adFacetSummary.isReady()) {
+            return adFacetSummary.snapshot();
+        }
+
+        long[] categoryCounts = new long[CategoryEnum.values().length];
+        long[] bucketCounts = new long[bounds.size() + 1];
+        long total = 0;
+        for (AdFacetRow row : adRepository.countFacets(filter, bounds)) {
+            categoryCounts[row.category().ordinal()] += row.count();
+            if (row.bucket() != AdFacetRow.NO_PRICE_BUCKET) {
+                bucketCounts[row.bucket()] += row.count();
+            }
+            total += row.count();
+        }
+        return toDTO(categoryCounts, bucketCounts, total, bounds);
+    }
+
+    static List<Integer> normalizeBounds(List<Integer> bounds) {
+        return bounds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
+    static int bucketOf(int price, List<Integer> bounds) {
+        for (int i = 0; i < bounds.size(); i++) {
+            if (price < bounds.get(i)) {
+                return i;
+            }
+        }
+        return bounds.size();
+    }
+
+    static AdFacetsDTO toDTO(long[] categoryCounts, long[] bucketCounts, long total, List<Integer> bounds) {
+        AdFacetsDTO dto = new AdFacetsDTO();
+        dto.setTotal(total);
+        for (CategoryEnum category : CategoryEnum.values()) {
+            dto.getCategories().put(category, categoryCounts[category.ordinal()]);
+        }
+        for (int i = 0; i < bucketCounts.length; i++) {
+            Integer min = i == 0 ? null : bounds.get(i - 1);
+            Integer max = i < bounds.size() ? bounds.get(i) : null;
+            dto.getPriceBuckets().add(new AdFacetsDTO.PriceBucketDTO(min, max, bucketCounts[i]));
+        }
+        return dto;
+    }
+
+    private boolean isUnfiltered(AdSearchFilter filter) {
+        return filter.getCategory() == null && !filter.hasTitle()
+                && filter.getMinPrice() == null && filter.getMaxPrice() == null;
+    }
+}
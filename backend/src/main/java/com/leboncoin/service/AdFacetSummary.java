@@ -0,0 +1,99 @@
+package com.leboncoin.service;
+
+import com.leboncoin.config.AdSearchProperties;
+import com.leboncoin.dto.AdFacetsDTO;
+import com.leboncoin.entity.CategoryEnum;
+import com.leboncoin.repository.AdFacetRow;
+import com.leboncoin.repository.AdRepository;
+import com.leboncoin.repository.AdSearchFilter;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Facettes non filtrées (bornes de prix par défaut) maintenues en mémoire :
+ * chargées au démarrage par une agrégation, puis ajustées à chaque
+ * AdChangedEvent validé. Une resynchronisation périodique corrige la dérive
+ * possible pendant le chargement initial ou entre plusieurs instances.
+ */
+@Component
+public class AdFacetSummary {
+
+    private final AdRepository adRepository;
+    private final List<Integer> priceBounds;
+    private final boolean enabled;
+
+    private long[] categoryCounts;
+    private long[] bucketCounts;
+    private long total;
+    private boolean ready;
+
+    public AdFacetSummary(AdRepository adRepository, AdSearchProperties properties) {
+        this.adRepository = adRepository;
+        this.priceBounds = AdFacetService.normalizeBounds(properties.getFacets().getPriceBounds());
+        this.enabled = properties.getFacets().isSummaryEnabled();
+    }
+
+    public List<Integer> getPriceBounds() {
+        return priceBounds;
+    }
+
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${ads.search.facets.summary-refresh:PT10M}",
+            initialDelayString = "${ads.search.facets.summary-refresh:PT10M}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        List<AdFacetRow> rows = adRepository.countFacets(new AdSearchFilter(null, null, null, null), priceBounds);
+        long[] categories = new long[CategoryEnum.values().length];
+        long[] buckets = new long[priceBounds.size() + 1];
+        long sum = 0;
+        for (AdFacetRow row : rows) {
+            categories[row.category().ordinal()] += row.count();
+            if (row.bucket() != AdFacetRow.NO_PRICE_BUCKET) {
+                buckets[row.bucket()] += row.count();
+            }
+            sum += row.count();
+        }
+        synchronized (this) {
+            categoryCounts = categories;
+            bucketCounts = buckets;
+            total = sum;
+            ready = true;
+        }
+    }
+
+    @TransactionalEventListener
+    public synchronized void onAdChanged(AdChangedEvent event) {
+        if (!ready) {
+            return;
+        }
+        if (!event.isCreation()) {
+            apply(event.getPreviousCategory(), event.getPreviousPrice(), -1);
+        }
+        if (!event.isDeletion()) {
+            apply(event.getCategory(), event.getPrice(), 1);
+        }
+    }
+
+    public synchronized AdFacetsDTO snapshot() {
+        return AdFacetService.toDTO(categoryCounts, bucketCounts, total, priceBounds);
+    }
+
+    private void apply(CategoryEnum category, Integer price, int delta) {
+        categoryCounts[category.ordinal()] += delta;
+        if (price != null) {
+            bucketCounts[AdFacetService.bucketOf(price, priceBounds)] += delta;
+        }
+        total += delta;
+    }
+}
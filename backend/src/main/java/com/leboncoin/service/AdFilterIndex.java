@@ -0,0 +1,264 @@
+package com.leboncoin.service;
+
+import com.leboncoin.config.AdSearchProperties;
+import com.leboncoin.entity.CategoryEnum;
+import com.leboncoin.repository.AdIndexRow;
+import com.leboncoin.repository.AdRepository;
+import com.leboncoin.repository.AdSearchFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Index de filtrage en mémoire, en colonnes de types primitifs triées par id,
+ * avec un bitset par catégorie. Il répond aux recherches sans titre
+ * (catégorie + fourchette de prix), total compris, sans interroger PostgreSQL :
+ * seuls les ids de la page demandée sont ensuite hydratés. Chaque recherche
+ * parcourt toutes les annonces de la catégorie (ou toutes les annonces) pour
+ * compter le total : le coût reste linéaire, seulement sans aller-retour base.
+ *
+ * Construit au démarrage par un parcours en flux de la table, tenu à jour par
+ * les AdChangedEvent validés et reconstruit périodiquement (compactage des
+ * suppressions). Ces événements sont locaux : les écritures d'une autre
+ * instance n'apparaîtraient qu'à la reconstruction suivante. L'index est donc
+ * réservé aux déploiements à une seule instance et refuse de démarrer sans
+ * ads.search.index.single-node.
+ */
+@Component
+public class AdFilterIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(AdFilterIndex.class);
+
+    private final AdRepository adRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protégés par lock
+    private Columns columns;
+    private List<AdChangedEvent> pendingEvents;
+
+    public AdFilterIndex(AdRepository adRepository, PlatformTransactionManager transactionManager,
+            AdSearchProperties properties) {
+        this.adRepository = adRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = properties.getIndex().isEnabled();
+        if (enabled && !properties.getIndex().isSingleNode()) {
+            throw new IllegalStateException("ads.search.index.enabled requires ads.search.index.single-node: "
+                    + "the index does not see writes made by other instances");
+        }
+    }
+
+    public boolean canServe(AdSearchFilter filter) {
+        if (!enabled || filter.hasTitle()) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return columns != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Hits search(AdSearchFilter filter, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            return columns.search(filter, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${ads.search.index.rebuild-interval:PT1H}",
+            initialDelayString = "${ads.search.index.rebuild-interval:PT1H}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pendingEvents = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Columns fresh = new Columns();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<AdIndexRow> rows = adRepository.streamIndexRows()) {
+                    rows.forEach(row -> fresh.append(row.id(), row.price(), row.category()));
+                }
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingEvents = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("Unable to build the in-memory ad filter index", e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Rejoue les écritures validées pendant le parcours
+            pendingEvents.forEach(event -> apply(fresh, event));
+            pendingEvents = null;
+            columns = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("In-memory ad filter index built: {} ads", fresh.size);
+    }
+
+    @TransactionalEventListener
+    public void onAdChanged(AdChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (pendingEvents != null) {
+                pendingEvents.add(event);
+            }
+            if (columns != null) {
+                apply(columns, event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Columns target, AdChangedEvent event) {
+        if (event.isDeletion()) {
+            target.remove(event.getAdId());
+        } else {
+            target.upsert(event.getAdId(), event.getPrice(), event.getCategory());
+        }
+    }
+
+    /**
+     * Ids de la page demandée (ordre id décroissant) et nombre total de résultats.
+     */
+    public record Hits(List<Integer> ids, long total) {
+    }
+
+    private static final class Columns {
+
+        private static final int NO_PRICE = Integer.MIN_VALUE;
+
+        private int[] ids = new int[1024];
+        private int[] prices = new int[1024];
+        private byte[] categories = new byte[1024];
+        private int size;
+        private final BitSet live = new BitSet();
+        private final BitSet[] byCategory = new BitSet[CategoryEnum.values().length];
+
+        private Columns() {
+            for (int i = 0; i < byCategory.length; i++) {
+                byCategory[i] = new BitSet();
+            }
+        }
+
+        // Lignes du parcours initial, déjà triées par id
+        private void append(int id, Integer price, CategoryEnum category) {
+            ensureCapacity(size + 1);
+            set(size, id, price, category);
+            size++;
+        }
+
+        private void upsert(int id, Integer price, CategoryEnum category) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                byCategory[categories[pos]].clear(pos);
+            } else {
+                pos = -pos - 1;
+                insertAt(pos);
+            }
+            set(pos, id, price, category);
+        }
+
+        private void remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                live.clear(pos);
+                byCategory[categories[pos]].clear(pos);
+            }
+        }
+
+        private Hits search(AdSearchFilter filter, long offset, int limit) {
+            BitSet candidates = filter.getCategory() != null ? byCategory[filter.getCategory().ordinal()] : live;
+            boolean priceFiltered = filter.getMinPrice() != null || filter.getMaxPrice() != null;
+            int minPrice = filter.getMinPrice() != null ? filter.getMinPrice() : Integer.MIN_VALUE;
+            int maxPrice = filter.getMaxPrice() != null ? filter.getMaxPrice() : Integer.MAX_VALUE;
+
+            List<Integer> page = new ArrayList<>(limit);
+            long total = 0;
+            for (int pos = candidates.previousSetBit(size - 1); pos >= 0; pos = candidates.previousSetBit(pos - 1)) {
+                int price = prices[pos];
+                if (priceFiltered && (price == NO_PRICE || price < minPrice || price > maxPrice)) {
+                    continue;
+                }
+                if (total >= offset && page.size() < limit) {
+                    page.add(ids[pos]);
+                }
+                total++;
+            }
+            return new Hits(page, total);
+        }
+
+        private void set(int pos, int id, Integer price, CategoryEnum category) {
+            ids[pos] = id;
+            prices[pos] = price != null ? price : NO_PRICE;
+            categories[pos] = (byte) category.ordinal();
+            live.set(pos);
+            byCategory[category.ordinal()].set(pos);
+        }
+
+        // Insertion hors ordre (commits concurrents) : en pratique proche de la fin
+        private void insertAt(int pos) {
+            ensureCapacity(size + 1);
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            System.arraycopy(prices, pos, prices, pos + 1, size - pos);
+            System.arraycopy(categories, pos, categories, pos + 1, size - pos);
+            shiftRight(live, pos);
+            for (BitSet bits : byCategory) {
+                shiftRight(bits, pos);
+            }
+            size++;
+        }
+
+        private void shiftRight(BitSet bits, int from) {
+            for (int i = size - 1; i >= from; i--) {
+                bits.set(i + 1, bits.get(i));
+            }
+            bits.clear(from);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > ids.length) {
+                int newLength = Math.max(capacity, ids.length * 2);
+                ids = Arrays.copyOf(ids, newLength);
+                prices = Arrays.copyOf(prices, newLength);
+                categories = Arrays.copyOf(categories, newLength);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.leboncoin.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.leboncoin.config.AdSearchProperties;
+import com.leboncoin.dto.AdDTO;
+import com.leboncoin.dto.AdImageMode;
+import com.leboncoin.dto.AdImageSize;
+import com.leboncoin.entity.CategoryEnum;
+import com.leboncoin.repository.AdSearchFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache borné (taille + TTL) des pages de résultats de recherche.
+ *
+ * L'invalidation est ciblée : une écriture ne retire que les entrées de sa
+ * catégorie (ancienne et nouvelle) ainsi que les recherches sans filtre de
+ * catégorie. Elle a lieu après commit pour ne pas être recouverte par une
+ * lecture concurrente de l'état non encore validé.
+ *
+ * Un chargement commencé avant ce commit a pu lire l'ancien état et le
+ * mettre en cache après l'invalidation : un compteur de génération par
+ * catégorie (et un global pour les recherches toutes catégories) est lu
+ * avant le chargement, et la page est retirée s'il a changé entre-temps.
+ */
+@Component
+public class AdSearchCache {
+
+    private final Cache<Key, Page<AdDTO>> cache;
+    private final AtomicLong allCategoriesGeneration = new AtomicLong();
+    private final Map<CategoryEnum, AtomicLong> categoryGenerations = new EnumMap<>(CategoryEnum.class);
+
+    public AdSearchCache(AdSearchProperties properties, MeterRegistry meterRegistry) {
+        AdSearchProperties.Cache settings = properties.getCache();
+        for (CategoryEnum category : CategoryEnum.values()) {
+            categoryGenerations.put(category, new AtomicLong());
+        }
+        if (settings.isEnabled()) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(settings.getMaximumSize())
+                    .expireAfterWrite(settings.getTtl())
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "ads.search");
+        } else {
+            this.cache = null;
+        }
+    }
+
+    public Page<AdDTO> get(AdSearchFilter filter, Pageable pageable, AdImageMode images, AdImageSize imageSize,
+            Supplier<Page<AdDTO>> loader) {
+        if (cache == null) {
+            return loader.get();
+        }
+        Key key = new Key(filter, pageable, images, imageSize);
+        long generation = generation(key.category());
+        Page<AdDTO> page = cache.get(key, k -> loader.get());
+        if (generation(key.category()) != generation) {
+            // Écriture validée pendant le chargement : la page a pu être lue avant son commit
+            cache.asMap().remove(key, page);
+        }
+        return page;
+    }
+
+    @TransactionalEventListener
+    public void onAdChanged(AdChangedEvent event) {
+        if (cache == null) {
+            return;
+        }
+        CategoryEnum previous = event.getPreviousCategory();
+        CategoryEnum current = event.getCategory();
+        // Avant le retrait des entrées : un chargement en cours retirera lui-même la sienne
+        allCategoriesGeneration.incrementAndGet();
+        if (previous != null) {
+            categoryGenerations.get(previous).incrementAndGet();
+        }
+        if (current != null) {
+            categoryGenerations.get(current).incrementAndGet();
+        }
+        cache.asMap().keySet().removeIf(key -> key.category == null
+                || key.category == previous
+                || key.category == current);
+    }
+
+    private long generation(CategoryEnum category) {
+        return category == null ? allCategoriesGeneration.get() : categoryGenerations.get(category).get();
+    }
+
+    private record Key(CategoryEnum category, String title, Integer minPrice, Integer maxPrice, int page, int size,
+            AdImageMode images, AdImageSize imageSize) {
+
+        private Key(AdSearchFilter filter, Pageable pageable, AdImageMode images, AdImageSize imageSize) {
+            this(filter.getCategory(), filter.getTitle(), filter.getMinPrice(), filter.getMaxPrice(),
+                    pageable.getPageNumber(), pageable.getPageSize(), images, imageSize);
+        }
+    }
+}
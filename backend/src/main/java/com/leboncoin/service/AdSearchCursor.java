@@ -0,0 +1,93 @@
+package com.leboncoin.service;
+
+import com.leboncoin.dto.AdSearchSort;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encode / décode le curseur opaque de la pagination keyset.
+ *
+ * Format (avant Base64 URL) : {@code SORT|price|id}. Le tri est embarqué pour
+ * refuser un curseur rejoué avec un autre ordre de tri. Pour les tris par
+ * prix, un prix vide désigne la seconde phase, celle des annonces sans prix
+ * parcourues par id après toutes les autres ; un id vide y désigne son début.
+ *
+ * Un curseur illisible est une erreur du client : 400, jamais 500.
+ */
+final class AdSearchCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private AdSearchCursor() {
+    }
+
+    /**
+     * Position décodée ; {@code nullPrices} indique la phase des annonces
+     * sans prix d'un tri par prix.
+     */
+    record Position(KeysetScrollPosition keyset, boolean nullPrices) {
+    }
+
+    static Position decode(String cursor, AdSearchSort sort) {
+        if (!StringUtils.hasText(cursor)) {
+            return new Position(ScrollPosition.keyset(), false);
+        }
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw invalid("Invalid cursor");
+        }
+        String[] parts = raw.split("\\" + SEPARATOR, -1);
+        if (parts.length != 3 || !sort.name().equals(parts[0])) {
+            throw invalid("Invalid cursor for sort " + sort);
+        }
+        boolean nullPrices = sort.sortsByPrice() && parts[1].isEmpty();
+        try {
+            Map<String, Object> keys = new LinkedHashMap<>();
+            if (nullPrices && parts[2].isEmpty()) {
+                return new Position(ScrollPosition.keyset(), true);
+            }
+            if (sort.sortsByPrice() && !nullPrices) {
+                keys.put("price", Integer.valueOf(parts[1]));
+            }
+            keys.put("id", Integer.valueOf(parts[2]));
+            return new Position(ScrollPosition.forward(keys), nullPrices);
+        } catch (NumberFormatException e) {
+            throw invalid("Invalid cursor");
+        }
+    }
+
+    static String encode(ScrollPosition position, AdSearchSort sort) {
+        if (!(position instanceof KeysetScrollPosition keyset) || keyset.isInitial()) {
+            return null;
+        }
+        Object price = keyset.getKeys().get("price");
+        Object id = keyset.getKeys().get("id");
+        return encode(sort.name() + SEPARATOR + (price != null ? price : "") + SEPARATOR + id);
+    }
+
+    /**
+     * Début de la phase des annonces sans prix, quand la page se termine
+     * exactement sur la dernière annonce avec prix.
+     */
+    static String encodeNullPricesStart(AdSearchSort sort) {
+        return encode(sort.name() + SEPARATOR + SEPARATOR);
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ResponseStatusException invalid(String reason) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, reason);
+    }
+}
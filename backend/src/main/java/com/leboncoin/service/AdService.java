@@ -1,27 +1,50 @@
 package com.leboncoin.service;
 
 import com.leboncoin.dto.AdDTO;
+import com.leboncoin.dto.AdImageMode;
+import com.leboncoin.dto.AdImageSize;
+import com.leboncoin.dto.AdSearchSort;
+import com.leboncoin.dto.CursorPageDTO;
 import com.leboncoin.entity.Ad;
 import com.leboncoin.entity.Category;
+import com.leboncoin.entity.CategoryEnum;
 import com.leboncoin.entity.User;
+import com.leboncoin.repository.AdListView;
 import com.leboncoin.repository.AdRepository;
+import com.leboncoin.repository.AdSearchFilter;
 import com.leboncoin.repository.CategoryRepository;
+import com.leboncoin.repository.SearchCapabilities;
 import com.leboncoin.repository.UserRepository;
+import com.leboncoin.storage.ImageVariant;
 import com.leboncoin.storage.ObjectStorageService;
-import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.EntityManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.util.StringUtils;
 
@@ -38,53 +61,140 @@ import org.springframework.util.StringUtils;
 @Service
 public class AdService {
 
+    private static final int EXPORT_CHUNK_SIZE = 500;
+
     private final AdRepository adRepository;
     private final CategoryRepository categoryRepository;
     private final UserRepository userRepository;
     private final ObjectStorageService objectStorageService;
+    private final EntityManager entityManager;
+    private final AdSearchCache adSearchCache;
+    private final AdFilterIndex adFilterIndex;
+    private final StorageDeletionService storageDeletionService;
+    private final ImageVariantService imageVariantService;
+    private final ImageUrlService imageUrlService;
+    private final SearchCapabilities searchCapabilities;
+    private final ApplicationEventPublisher eventPublisher;
+    // Écritures en transaction programmatique : la vérification des images au stockage se fait avant
+    private final TransactionTemplate writeTransaction;
 
     public AdService(AdRepository adRepository, CategoryRepository categoryRepository, UserRepository userRepository,
-            ObjectStorageService objectStorageService) {
+            ObjectStorageService objectStorageService, EntityManager entityManager, AdSearchCache adSearchCache,
+            AdFilterIndex adFilterIndex, StorageDeletionService storageDeletionService,
+            ImageVariantService imageVariantService, ImageUrlService imageUrlService,
+            SearchCapabilities searchCapabilities, ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager) {
         this.adRepository = adRepository;
         this.categoryRepository = categoryRepository;
         this.userRepository = userRepository;
         this.objectStorageService = objectStorageService;
+        this.entityManager = entityManager;
+        this.adSearchCache = adSearchCache;
+        this.adFilterIndex = adFilterIndex;
+        this.storageDeletionService = storageDeletionService;
+        this.imageVariantService = imageVariantService;
+        this.imageUrlService = imageUrlService;
+        this.searchCapabilities = searchCapabilities;
+        this.eventPublisher = eventPublisher;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
     public AdDTO createAd(AdDTO adDTO, String userEmail) {
+        // Les images envoyées directement au stockage ne sont acceptées qu'une fois présentes
+        verifyNewImages(sanitizeImageKeys(adDTO.getImageObjectNames()));
+        return writeTransaction.execute(status -> insertAd(adDTO, userEmail));
+    }
 
+    private AdDTO insertAd(AdDTO adDTO, String userEmail) {
         Category category = categoryRepository.findByName(adDTO.getCategory())
                 .orElseThrow(() -> new RuntimeException("Category not found: " + adDTO.getCategory()));
 
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("User not found: " + userEmail));
 
-        Ad ad = new Ad();
-        ad.setTitle(adDTO.getTitle());
-        ad.setDescription(adDTO.getDescription());
-        ad.setPrice(adDTO.getPrice());
-        ad.setImages(sanitizeImageKeys(adDTO.getImageObjectNames()));
-        ad.setCategory(category);
-        ad.setUser(user);
-
+        Ad ad = newAd(adDTO, category, user);
         Ad savedAd = adRepository.save(ad);
+        eventPublisher.publishEvent(AdChangedEvent.created(savedAd.getId(), category.getName(), savedAd.getPrice()));
 
         return convertToDTO(savedAd);
     }
 
+    /**
+     * Création en masse dans une seule transaction : l'utilisateur et les
+     * catégories ne sont lus qu'une fois, les INSERT partent en batch JDBC.
+     * Les images sont vérifiées au stockage avant d'ouvrir la transaction.
+     */
+    public List<AdDTO> createAds(List<AdDTO> adDTOs, String userEmail) {
+        verifyNewImages(adDTOs.stream()
+                .flatMap(adDTO -> sanitizeImageKeys(adDTO.getImageObjectNames()).stream())
+                .collect(Collectors.toSet()));
+        return writeTransaction.execute(status -> insertAds(adDTOs, userEmail));
+    }
+
+    private List<AdDTO> insertAds(List<AdDTO> adDTOs, String userEmail) {
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found: " + userEmail));
+
+        Map<CategoryEnum, Category> categories = categoryRepository.findAll().stream()
+                .collect(Collectors.toMap(Category::getName, Function.identity()));
+
+        List<Ad> ads = new ArrayList<>(adDTOs.size());
+        for (AdDTO adDTO : adDTOs) {
+            Category category = categories.get(adDTO.getCategory());
+            if (category == null) {
+                throw new RuntimeException("Category not found: " + adDTO.getCategory());
+            }
+            ads.add(newAd(adDTO, category, user));
+        }
+
+        List<Ad> savedAds = adRepository.saveAll(ads);
+        savedAds.forEach(ad -> eventPublisher.publishEvent(
+                AdChangedEvent.created(ad.getId(), ad.getCategory().getName(), ad.getPrice())));
+
+        return convertToDTOs(savedAds, AdImageMode.ALL, AdImageSize.ORIGINAL);
+    }
+
     @Transactional(readOnly = true)
-    public List<AdDTO> getAllAds() {
-        return adRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public List<AdDTO> getAllAds(AdImageMode images, AdImageSize imageSize) {
+        return convertToDTOs(adRepository.findAll(), images, imageSize);
     }
 
+    /**
+     * Export complet en flux : les annonces sont lues par un curseur et
+     * converties par paquets, le contexte de persistance étant vidé après
+     * chaque paquet pour garder une empreinte mémoire constante.
+     */
     @Transactional(readOnly = true)
-    public AdDTO getAdById(Integer id) {
+    public void exportAds(Consumer<AdDTO> consumer) {
+        try (Stream<Ad> ads = adRepository.streamAll()) {
+            List<Ad> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+            Iterator<Ad> iterator = ads.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == EXPORT_CHUNK_SIZE) {
+                    exportChunk(chunk, consumer);
+                }
+            }
+            exportChunk(chunk, consumer);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public AdDTO getAdById(Integer id, AdImageSize imageSize) {
         Ad ad = adRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Ad not found with id: " + id));
-        return convertToDTO(ad);
+        return convertToDTO(ad, AdImageMode.ALL, imageSize);
+    }
+
+    /**
+     * URLs de toutes les images d'une annonce, pour les listes
+     * renvoyées sans elles (paramètre images=FIRST ou NONE).
+     */
+    @Transactional(readOnly = true)
+    public List<String> getAdImages(Integer id) {
+        Ad ad = adRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Ad not found with id: " + id));
+        return imageUrlService.urls(ad.getImages());
     }
 
     @Transactional
@@ -97,13 +207,20 @@ public class AdService {
         }
 
         AdDTO deletedAdDTO = convertToDTO(ad);
-        objectStorageService.deleteObjects(ad.getImages());
+        storageDeletionService.enqueue(ad.getImages());
         adRepository.delete(ad);
+        eventPublisher.publishEvent(AdChangedEvent.deleted(ad.getId(), ad.getCategory().getName(), ad.getPrice()));
         return deletedAdDTO;
     }
 
-    @Transactional
     public AdDTO updateAd(Integer id, AdDTO adDTO, String userEmail) {
+        List<String> incomingImages = sanitizeImageKeys(adDTO.getImageObjectNames());
+        // Les images déjà présentes sur l'annonce sont référencées : seules les nouvelles sont vérifiées
+        verifyNewImages(incomingImages);
+        return writeTransaction.execute(status -> applyUpdate(id, adDTO, incomingImages, userEmail));
+    }
+
+    private AdDTO applyUpdate(Integer id, AdDTO adDTO, List<String> incomingImages, String userEmail) {
         Ad ad = adRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Ad not found with id: " + id));
 
@@ -114,7 +231,9 @@ public class AdService {
         Category category = categoryRepository.findByName(adDTO.getCategory())
                 .orElseThrow(() -> new RuntimeException("Category not found: " + adDTO.getCategory()));
 
-        List<String> incomingImages = sanitizeImageKeys(adDTO.getImageObjectNames());
+        CategoryEnum previousCategory = ad.getCategory().getName();
+        Integer previousPrice = ad.getPrice();
+
         List<String> existingImages = ad.getImages() != null ? new ArrayList<>(ad.getImages()) : new ArrayList<>();
         deleteRemovedObjects(existingImages, incomingImages);
 
@@ -125,48 +244,152 @@ public class AdService {
         ad.setCategory(category);
 
         Ad updatedAd = adRepository.save(ad);
+        eventPublisher.publishEvent(new AdChangedEvent(updatedAd.getId(), previousCategory, previousPrice,
+                category.getName(), updatedAd.getPrice()));
 
         return convertToDTO(updatedAd);
     }
 
-    @Transactional(readOnly = true)
-    public Page<AdDTO> searchAds(String category, String title, Integer minPrice, Integer maxPrice, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("id").descending());
+    /**
+     * Pas de transaction ici : un succès du cache ne doit pas mobiliser de
+     * connexion, la requête de projection ouvre la sienne si nécessaire.
+     */
+    public Page<AdDTO> searchAds(String category, String title, Integer minPrice, Integer maxPrice, int page, int size,
+            AdImageMode images, AdImageSize imageSize) {
+        Pageable pageable = PageRequest.of(page, size);
+        AdSearchFilter filter = AdSearchFilter.of(category, title, minPrice, maxPrice);
+
+        return adSearchCache.get(filter, pageable, images, imageSize, () -> {
+            // Recherches sans titre : résolues par l'index en mémoire, seule la page est lue en base
+            if (adFilterIndex.canServe(filter)) {
+                AdFilterIndex.Hits hits = adFilterIndex.search(filter, pageable.getOffset(), pageable.getPageSize());
+                List<AdListView> views = adRepository.findListViewsByIds(hits.ids());
+                preloadVariants(views.stream().map(AdListView::images), images, imageSize);
+                List<AdDTO> content = views.stream()
+                        .map(view -> convertToDTO(view, images, imageSize))
+                        .collect(Collectors.toList());
+                return new PageImpl<>(content, pageable, hits.total());
+            }
+            Page<AdListView> views = adRepository.searchListViews(filter, pageable);
+            preloadVariants(views.stream().map(AdListView::images), images, imageSize);
+            return views.map(view -> convertToDTO(view, images, imageSize));
+        });
+    }
 
-        Specification<Ad> spec = (root, query, criteriaBuilder) -> {
-            List<Predicate> predicates = new ArrayList<>();
+    /**
+     * Pagination par curseur (keyset) : aucune requête count(*) et un coût
+     * constant quelle que soit la profondeur de la page demandée.
+     *
+     * Le keyset ne sait pas comparer les prix NULL : un tri par prix parcourt
+     * d'abord les annonces avec prix, puis celles sans prix par id.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<AdDTO> searchAdsByCursor(String category, String title, Integer minPrice, Integer maxPrice,
+            AdSearchSort sort, String cursor, int size, AdImageMode images, AdImageSize imageSize) {
+        AdSearchSort effectiveSort = sort != null ? sort : AdSearchSort.RECENT;
+        AdSearchCursor.Position position = AdSearchCursor.decode(cursor, effectiveSort);
+        Specification<Ad> spec = AdRepository.matching(AdSearchFilter.of(category, title, minPrice, maxPrice),
+                searchCapabilities);
+
+        if (!effectiveSort.sortsByPrice()) {
+            Window<Ad> window = scroll(spec, effectiveSort.getSort(), position.keyset(), size);
+            return cursorPage(window.getContent(), window, effectiveSort, images, imageSize);
+        }
 
-            // Filtre par catégorie
-            if (category != null && !category.isEmpty()) {
-                predicates.add(criteriaBuilder.equal(root.get("category").get("name"), category));
+        Specification<Ad> withoutPrice = spec.and((root, query, criteriaBuilder) -> criteriaBuilder.isNull(root.get("price")));
+        List<Ad> ads = new ArrayList<>(size);
+        if (!position.nullPrices()) {
+            Specification<Ad> withPrice = spec.and((root, query, criteriaBuilder) -> criteriaBuilder.isNotNull(root.get("price")));
+            Window<Ad> window = scroll(withPrice, effectiveSort.getSort(), position.keyset(), size);
+            if (window.hasNext()) {
+                return cursorPage(window.getContent(), window, effectiveSort, images, imageSize);
             }
-
-            // Filtre par titre (recherche partielle case-insensitive)
-            if (title != null && !title.isEmpty()) {
-                predicates.add(criteriaBuilder.like(
-                        criteriaBuilder.lower(root.get("title")),
-                        "%" + title.toLowerCase() + "%"
-                ));
+            ads.addAll(window.getContent());
+            if (ads.size() == size) {
+                // Page pleine sur la dernière annonce avec prix : la suivante commence les prix NULL
+                boolean hasNext = adRepository.exists(withoutPrice);
+                return new CursorPageDTO<>(convertToDTOs(ads, images, imageSize), hasNext,
+                        hasNext ? AdSearchCursor.encodeNullPricesStart(effectiveSort) : null);
             }
+        }
 
-            // Filtre par prix minimum
-            if (minPrice != null) {
-                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("price"), minPrice));
-            }
+        KeysetScrollPosition nullPricesPosition = position.nullPrices() ? position.keyset() : ScrollPosition.keyset();
+        Window<Ad> window = scroll(withoutPrice, effectiveSort.getNullPriceSort(), nullPricesPosition, size - ads.size());
+        ads.addAll(window.getContent());
+        return cursorPage(ads, window, effectiveSort, images, imageSize);
+    }
 
-            // Filtre par prix maximum
-            if (maxPrice != null) {
-                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("price"), maxPrice));
-            }
+    private Window<Ad> scroll(Specification<Ad> spec, Sort sort, KeysetScrollPosition position, int limit) {
+        return adRepository.findBy(spec.and(AdRepository.fetchListAssociations()), query -> query
+                .sortBy(sort)
+                .limit(limit)
+                .scroll(position));
+    }
 
-            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
-        };
+    // Curseur suivant tiré de la dernière fenêtre lue, qui termine la page
+    private CursorPageDTO<AdDTO> cursorPage(List<Ad> ads, Window<Ad> last, AdSearchSort sort, AdImageMode images,
+            AdImageSize imageSize) {
+        String nextCursor = last.hasNext() && !last.isEmpty()
+                ? AdSearchCursor.encode(last.positionAt(last.size() - 1), sort)
+                : null;
+        return new CursorPageDTO<>(convertToDTOs(ads, images, imageSize), last.hasNext(), nextCursor);
+    }
 
-        Page<Ad> adsPage = adRepository.findAll(spec, pageable);
-        return adsPage.map(this::convertToDTO);
+    /**
+     * Vérifie au stockage les images qu'aucune annonce ne référence encore,
+     * hors transaction : les appels au stockage ne retiennent ni connexion
+     * ni verrou. Les clés déjà référencées ont été vérifiées à leur ajout.
+     */
+    private void verifyNewImages(Collection<String> objectNames) {
+        if (objectNames.isEmpty()) {
+            return;
+        }
+        Set<String> unverified = new HashSet<>(objectNames);
+        adRepository.findReferencedImages(unverified).forEach(unverified::remove);
+        objectStorageService.verifyStoredImages(unverified);
+    }
+
+    private Ad newAd(AdDTO adDTO, Category category, User user) {
+        Ad ad = new Ad();
+        ad.setTitle(adDTO.getTitle());
+        ad.setDescription(adDTO.getDescription());
+        ad.setPrice(adDTO.getPrice());
+        ad.setImages(sanitizeImageKeys(adDTO.getImageObjectNames()));
+        ad.setCategory(category);
+        ad.setUser(user);
+        return ad;
+    }
+
+    private void exportChunk(List<Ad> chunk, Consumer<AdDTO> consumer) {
+        // Les images du paquet sont chargées par lots (@BatchSize) au premier accès
+        convertToDTOs(chunk, AdImageMode.ALL, AdImageSize.ORIGINAL).forEach(consumer);
+        chunk.clear();
+        entityManager.clear();
     }
 
     private AdDTO convertToDTO(Ad ad) {
+        return convertToDTO(ad, AdImageMode.ALL, AdImageSize.ORIGINAL);
+    }
+
+    private List<AdDTO> convertToDTOs(List<Ad> ads, AdImageMode images, AdImageSize imageSize) {
+        preloadVariants(ads.stream().map(ad -> ad.getImages() != null ? ad.getImages() : List.<String>of()), images,
+                imageSize);
+        return ads.stream()
+                .map(ad -> convertToDTO(ad, images, imageSize))
+                .collect(Collectors.toList());
+    }
+
+    // Un seul chargement de l'état des variantes par page, au lieu d'une requête par annonce
+    private void preloadVariants(Stream<List<String>> imageLists, AdImageMode images, AdImageSize imageSize) {
+        if (imageSize.getVariant() == null) {
+            return;
+        }
+        imageVariantService.preload(imageLists
+                .flatMap(objectNames -> images.select(objectNames).stream())
+                .collect(Collectors.toSet()));
+    }
+
+    private AdDTO convertToDTO(Ad ad, AdImageMode images, AdImageSize imageSize) {
         AdDTO dto = new AdDTO();
         dto.setId(ad.getId());
         dto.setTitle(ad.getTitle());
@@ -174,13 +397,40 @@ public class AdService {
         dto.setPrice(ad.getPrice());
         List<String> storedImages = ad.getImages() != null ? ad.getImages() : Collections.emptyList();
         dto.setImageObjectNames(new ArrayList<>(storedImages));
-        dto.setImages(objectStorageService.generatePresignedGetUrls(storedImages));
+        // Seules les images demandées sont signées, les clés restent toutes présentes
+        setImageUrls(dto, images.select(storedImages), imageSize);
         dto.setCategory(ad.getCategory().getName());
         dto.setUserId(ad.getUser().getId());
         dto.setUserEmail(ad.getUser().getEmail());
         return dto;
     }
 
+    private AdDTO convertToDTO(AdListView view, AdImageMode images, AdImageSize imageSize) {
+        List<String> storedImages = view.images();
+        AdDTO dto = new AdDTO(
+                view.id(),
+                view.title(),
+                view.description(),
+                view.price(),
+                null,
+                new ArrayList<>(storedImages),
+                view.category(),
+                view.userId(),
+                view.userEmail()
+        );
+        setImageUrls(dto, images.select(storedImages), imageSize);
+        return dto;
+    }
+
+    // Une seule liste signée, celle de la taille demandée
+    private void setImageUrls(AdDTO dto, List<String> objectNames, AdImageSize imageSize) {
+        switch (imageSize) {
+            case ORIGINAL -> dto.setImages(imageUrlService.urls(objectNames));
+            case MEDIUM -> dto.setMediumImages(imageVariantService.urls(objectNames, ImageVariant.MEDIUM));
+            case THUMB -> dto.setThumbnailImages(imageVariantService.urls(objectNames, ImageVariant.THUMB));
+        }
+    }
+
     private List<String> sanitizeImageKeys(List<String> imageKeys) {
         if (imageKeys == null || imageKeys.isEmpty()) {
             return new ArrayList<>();
@@ -197,10 +447,9 @@ public class AdService {
             return;
         }
         Set<String> incomingSet = Set.copyOf(incoming == null ? Collections.emptyList() : incoming);
-        for (String objectName : existing) {
-            if (!incomingSet.contains(objectName)) {
-                objectStorageService.deleteObject(objectName);
-            }
-        }
+        List<String> removed = existing.stream()
+                .filter(objectName -> !incomingSet.contains(objectName))
+                .collect(Collectors.toList());
+        storageDeletionService.enqueue(removed);
     }
 }
@@ -7,69 +7,86 @@ import com.leboncoin.dto.UserDTO;
 import com.leboncoin.entity.User;
 import com.leboncoin.repository.UserRepository;
 import com.leboncoin.security.JwtUtil;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import com.leboncoin.security.PasswordHasher;
+import com.leboncoin.security.UserCredentialsChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Optional;
 
 @Service
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final JwtUtil jwtUtil;
-    private final AuthenticationManager authenticationManager;
-    private final UserDetailsService userDetailsService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public AuthService(UserRepository userRepository,
-            PasswordEncoder passwordEncoder,
+            PasswordHasher passwordHasher,
             JwtUtil jwtUtil,
-            AuthenticationManager authenticationManager,
-            UserDetailsService userDetailsService) {
+            ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
         this.jwtUtil = jwtUtil;
-        this.authenticationManager = authenticationManager;
-        this.userDetailsService = userDetailsService;
+        this.eventPublisher = eventPublisher;
     }
 
-    @Transactional
+    /**
+     * Hash calculé hors transaction ; l'unicité de l'email est garantie par
+     * la contrainte en base, sans lecture préalable.
+     */
     public UserDTO register(RegisterRequestDTO registerRequest) {
-        if (userRepository.existsByEmail(registerRequest.getEmail())) {
-            throw new RuntimeException("Email already exists");
-        }
-
         User user = new User();
         user.setEmail(registerRequest.getEmail());
-        user.setPassword(passwordEncoder.encode(registerRequest.getPassword()));
+        user.setPassword(passwordHasher.encode(registerRequest.getPassword()));
         user.setEmailVerified(false);
 
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("Email already exists");
+        }
 
         return convertToDTO(savedUser);
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Une seule lecture de l'utilisateur, hors transaction : aucune connexion
+     * n'est retenue pendant la vérification bcrypt, exécutée sur son pool.
+     */
     public LoginResponseDTO login(LoginRequestDTO loginRequest) {
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        loginRequest.getEmail(),
-                        loginRequest.getPassword()
-                )
-        );
+        Optional<User> found = userRepository.findByEmail(loginRequest.getEmail());
+        String storedHash = found.map(User::getPassword).orElse(null);
 
-        final UserDetails userDetails = userDetailsService.loadUserByUsername(loginRequest.getEmail());
-        final String jwt = jwtUtil.generateToken(userDetails);
+        // Email inconnu : la comparaison a lieu quand même, contre un hash factice
+        boolean matches = passwordHasher.matches(loginRequest.getPassword(), storedHash);
+        if (found.isEmpty() || !matches) {
+            throw new BadCredentialsException("Bad credentials");
+        }
+        User user = found.get();
 
-        User user = userRepository.findByEmail(loginRequest.getEmail())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        // Coût bcrypt relevé depuis le dernier hash : mise à niveau transparente
+        if (passwordHasher.needsRehash(storedHash)) {
+            try {
+                userRepository.updatePassword(user.getId(), passwordHasher.encode(loginRequest.getPassword()));
+                eventPublisher.publishEvent(new UserCredentialsChangedEvent(user.getEmail()));
+            } catch (ResponseStatusException e) {
+                // Pool saturé : la mise à niveau attendra la prochaine connexion
+            }
+        }
 
-        UserDTO userDTO = convertToDTO(user);
+        UserDetails userDetails = new org.springframework.security.core.userdetails.User(
+                user.getEmail(), "", List.of());
+        final String jwt = jwtUtil.generateToken(userDetails);
 
-        return new LoginResponseDTO(jwt, userDTO);
+        return new LoginResponseDTO(jwt, convertToDTO(user));
     }
 
     private UserDTO convertToDTO(User user) {
@@ -0,0 +1,48 @@
+package com.leboncoin.service;
+
+import com.leboncoin.config.StorageProperties;
+import com.leboncoin.storage.ObjectStorageService;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * URLs des images renvoyées aux clients : URLs présignées du stockage, ou
+ * URLs stables du proxy d'images quand il est activé (cachables par les
+ * navigateurs et les CDN, la clé ne changeant jamais de contenu).
+ */
+@Service
+public class ImageUrlService {
+
+    public static final String PROXY_PATH = "/api/ads/images/";
+
+    private final ObjectStorageService objectStorageService;
+    private final boolean proxyEnabled;
+    private final String proxyBaseUrl;
+
+    public ImageUrlService(ObjectStorageService objectStorageService, StorageProperties properties) {
+        this.objectStorageService = objectStorageService;
+        this.proxyEnabled = properties.getProxy().isEnabled();
+        this.proxyBaseUrl = properties.getProxy().getPublicBaseUrl().replaceAll("/+$", "");
+    }
+
+    public List<String> urls(List<String> objectNames) {
+        if (!proxyEnabled) {
+            return objectStorageService.generatePresignedGetUrls(objectNames);
+        }
+        if (objectNames == null || objectNames.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> urls = new ArrayList<>(objectNames.size());
+        for (String objectName : objectNames) {
+            if (StringUtils.hasText(objectName)) {
+                urls.add(proxyBaseUrl + PROXY_PATH + UriUtils.encodePath(objectName, StandardCharsets.UTF_8));
+            }
+        }
+        return urls;
+    }
+}
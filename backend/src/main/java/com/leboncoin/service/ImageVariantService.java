@@ -0,0 +1,304 @@
+package com.leboncoin.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.leboncoin.config.StorageProperties;
+import com.leboncoin.entity.ImageVariantStatus;
+import com.leboncoin.repository.ImageVariantStatusRepository;
+import com.leboncoin.storage.ImageUploadedEvent;
+import com.leboncoin.storage.ImageVariant;
+import com.leboncoin.storage.ObjectStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Génère les variantes redimensionnées des images envoyées, hors du chemin de
+ * requête, avec le seul décodeur ImageIO du JDK (JPEG, PNG, GIF ; les formats
+ * non décodables gardent simplement l'original).
+ *
+ * Tant que les variantes d'une image n'existent pas, les URLs de variantes
+ * renvoient vers l'original. Les échecs et formats non décodables sont
+ * enregistrés comme définitifs ; les images antérieures aux variantes sont
+ * générées à leur premier affichage.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private static final Duration GENERATED_TTL = Duration.ofHours(1);
+    private static final Duration UNAVAILABLE_TTL = Duration.ofHours(24);
+    private static final Duration PENDING_TTL = Duration.ofMinutes(2);
+
+    private final ObjectStorageService objectStorageService;
+    private final ImageUrlService imageUrlService;
+    private final ImageVariantStatusRepository imageVariantStatusRepository;
+    private final ExecutorService executor;
+    private final StorageProperties.Variants settings;
+    // Disponibilité des variantes par image : seules les générations en cours sont relues souvent
+    private final Cache<String, Availability> generated = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfter(new Expiry<String, Availability>() {
+                @Override
+                public long expireAfterCreate(String objectName, Availability availability, long currentTime) {
+                    return availability.ttl.toNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(String objectName, Availability availability, long currentTime,
+                        long currentDuration) {
+                    return expireAfterCreate(objectName, availability, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String objectName, Availability availability, long currentTime,
+                        long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+    // Générations déjà soumises par ce nœud, pour ne pas les relancer à chaque page
+    private final Cache<String, Boolean> scheduled = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(GENERATED_TTL)
+            .build();
+
+    public ImageVariantService(ObjectStorageService objectStorageService, ImageUrlService imageUrlService,
+            ImageVariantStatusRepository imageVariantStatusRepository,
+            @Qualifier("imageVariantExecutor") ExecutorService executor, StorageProperties properties) {
+        this.objectStorageService = objectStorageService;
+        this.imageUrlService = imageUrlService;
+        this.imageVariantStatusRepository = imageVariantStatusRepository;
+        this.executor = executor;
+        this.settings = properties.getVariants();
+    }
+
+    @EventListener
+    public void onImageUploaded(ImageUploadedEvent event) {
+        schedule(event.getObjectName());
+    }
+
+    /**
+     * Charge en une requête l'état des variantes de toutes les images d'une
+     * page, avant la construction des DTO.
+     */
+    public void preload(Collection<String> objectNames) {
+        if (!objectNames.isEmpty()) {
+            availabilityOf(new HashSet<>(objectNames));
+        }
+    }
+
+    /**
+     * URLs de la variante demandée, ou de l'original pour les images dont
+     * les variantes ne sont pas encore prêtes.
+     */
+    public List<String> urls(List<String> objectNames, ImageVariant variant) {
+        if (objectNames.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<String> ready = generatedAmong(objectNames);
+        List<String> targets = objectNames.stream()
+                .map(objectName -> ready.contains(objectName) ? variant.objectName(objectName) : objectName)
+                .toList();
+        return imageUrlService.urls(targets);
+    }
+
+    /**
+     * Oublie l'état des variantes des originaux supprimés et retourne les clés
+     * des variantes à supprimer du stockage.
+     */
+    @Transactional
+    public List<String> forget(Collection<String> objectNames) {
+        if (objectNames.isEmpty()) {
+            return List.of();
+        }
+        List<String> withVariants = imageVariantStatusRepository.findGeneratedAmong(objectNames);
+        imageVariantStatusRepository.deleteAllByObjectNameIn(objectNames);
+        generated.invalidateAll(objectNames);
+        scheduled.invalidateAll(objectNames);
+
+        List<String> variantNames = new ArrayList<>(withVariants.size() * ImageVariant.values().length);
+        for (String objectName : withVariants) {
+            for (ImageVariant variant : ImageVariant.values()) {
+                variantNames.add(variant.objectName(objectName));
+            }
+        }
+        return variantNames;
+    }
+
+    private Set<String> generatedAmong(List<String> objectNames) {
+        Set<String> ready = new HashSet<>();
+        availabilityOf(objectNames).forEach((objectName, availability) -> {
+            if (availability == Availability.READY) {
+                ready.add(objectName);
+            }
+        });
+        return ready;
+    }
+
+    private Map<String, Availability> availabilityOf(Collection<String> objectNames) {
+        List<String> unknown = new ArrayList<>();
+        Map<String, Availability> states = generated.getAll(objectNames, missing -> {
+            Map<String, Availability> loaded = new HashMap<>();
+            for (ImageVariantStatus status : imageVariantStatusRepository.findByObjectNameIn(new ArrayList<>(missing))) {
+                loaded.put(status.getObjectName(), status.getState() == ImageVariantStatus.State.READY
+                        ? Availability.READY
+                        : Availability.UNAVAILABLE);
+            }
+            for (String objectName : missing) {
+                if (loaded.putIfAbsent(objectName, Availability.PENDING) == null) {
+                    unknown.add(objectName);
+                }
+            }
+            return loaded;
+        });
+        // Sans ligne ni génération en cours : image antérieure aux variantes
+        unknown.forEach(this::schedule);
+        return states;
+    }
+
+    private void schedule(String objectName) {
+        if (!settings.isEnabled() || scheduled.asMap().putIfAbsent(objectName, true) != null) {
+            return;
+        }
+        try {
+            executor.execute(() -> generate(objectName));
+        } catch (RejectedExecutionException e) {
+            scheduled.invalidate(objectName);
+            log.warn("Variant queue full, {} will be served without variants", objectName);
+        }
+    }
+
+    private void generate(String objectName) {
+        ImageVariantStatus.State state;
+        try {
+            BufferedImage source = decode(objectName);
+            if (source == null) {
+                log.debug("No JDK decoder for {}, keeping the original only", objectName);
+                state = ImageVariantStatus.State.UNSUPPORTED;
+            } else {
+                for (ImageVariant variant : ImageVariant.values()) {
+                    source = resize(source, variant.getMaxSize());
+                    objectStorageService.putObject(variant.objectName(objectName), encodeJpeg(source),
+                            MediaType.IMAGE_JPEG_VALUE);
+                }
+                state = ImageVariantStatus.State.READY;
+            }
+        } catch (Exception e) {
+            log.warn("Unable to generate variants for {}: {}", objectName, e.getMessage());
+            state = ImageVariantStatus.State.FAILED;
+        }
+        try {
+            imageVariantStatusRepository.save(new ImageVariantStatus(objectName, state));
+            generated.put(objectName, state == ImageVariantStatus.State.READY
+                    ? Availability.READY
+                    : Availability.UNAVAILABLE);
+        } catch (RuntimeException e) {
+            log.warn("Unable to record variant state for {}: {}", objectName, e.getMessage());
+        }
+    }
+
+    private BufferedImage decode(String objectName) throws IOException {
+        int largest = ImageVariant.values()[0].getMaxSize();
+        try (InputStream content = objectStorageService.getObject(objectName);
+             ImageInputStream input = ImageIO.createImageInputStream(content)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // Sous-échantillonnage au décodage : une photo de 12 Mpx n'est jamais chargée en entier
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int step = Math.max(1, longestSide / (2 * largest));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, int maxSize) {
+        double scale = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // Fond blanc pour les images transparentes (le JPEG n'a pas de canal alpha)
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(settings.getJpegQuality());
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    private enum Availability {
+        READY(GENERATED_TTL),
+        // Échec ou format non décodable : définitif tant que l'original existe
+        UNAVAILABLE(UNAVAILABLE_TTL),
+        PENDING(PENDING_TTL);
+
+        private final Duration ttl;
+
+        Availability(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.leboncoin.service;
+
+import com.leboncoin.config.StorageProperties;
+import com.leboncoin.entity.StorageDeletion;
+import com.leboncoin.repository.AdRepository;
+import com.leboncoin.repository.StorageDeletionRepository;
+import com.leboncoin.storage.ImageDiskCache;
+import com.leboncoin.storage.ImageVariant;
+import com.leboncoin.storage.ObjectStorageService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Suppressions d'objets de stockage différées via une outbox transactionnelle :
+ * le chemin de requête n'écrit que des lignes en base, le worker appelle
+ * ensuite l'API de suppression multi-objets par lots, avec reprise et backoff
+ * exponentiel.
+ */
+@Service
+public class StorageDeletionService {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageDeletionService.class);
+
+    private final StorageDeletionRepository storageDeletionRepository;
+    private final AdRepository adRepository;
+    private final ObjectStorageService objectStorageService;
+    private final ImageVariantService imageVariantService;
+    private final ObjectProvider<ImageDiskCache> imageDiskCache;
+    private final StorageProperties.Outbox settings;
+    private final TransactionTemplate writeTransaction;
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final Counter deletedCounter;
+    private final Counter failedCounter;
+
+    public StorageDeletionService(StorageDeletionRepository storageDeletionRepository,
+            AdRepository adRepository, ObjectStorageService objectStorageService,
+            ImageVariantService imageVariantService, ObjectProvider<ImageDiskCache> imageDiskCache,
+            StorageProperties properties, MeterRegistry meterRegistry, PlatformTransactionManager transactionManager) {
+        this.storageDeletionRepository = storageDeletionRepository;
+        this.adRepository = adRepository;
+        this.objectStorageService = objectStorageService;
+        this.imageVariantService = imageVariantService;
+        this.imageDiskCache = imageDiskCache;
+        this.settings = properties.getOutbox();
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        Gauge.builder("storage.deletion.outbox.depth", queueDepth, AtomicLong::get)
+                .description("Pending object deletions in the outbox")
+                .register(meterRegistry);
+        this.deletedCounter = Counter.builder("storage.deletion.outbox.deleted").register(meterRegistry);
+        this.failedCounter = Counter.builder("storage.deletion.outbox.failed").register(meterRegistry);
+    }
+
+    /**
+     * Enregistre les suppressions dans la transaction appelante : elles ne
+     * seront exécutées que si celle-ci est validée.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Collection<String> objectNames) {
+        if (objectNames == null || objectNames.isEmpty()) {
+            return;
+        }
+        // Délai de grâce : une clé partagée peut être reprise par une annonce en cours de création
+        LocalDateTime notBefore = LocalDateTime.now().plus(settings.getDeletionDelay());
+        List<StorageDeletion> deletions = objectNames.stream()
+                .filter(StringUtils::hasText)
+                .distinct()
+                .map(objectName -> new StorageDeletion(objectName, notBefore))
+                .toList();
+        storageDeletionRepository.saveAll(deletions);
+    }
+
+    /**
+     * Traite un lot de suppressions échues. Retourne le nombre de lignes
+     * réservées (0 quand l'outbox est vide).
+     *
+     * Aucune transaction n'englobe les appels au stockage : le lot est
+     * verrouillé puis réservé (nextAttemptAt repoussé de claimDuration) dans
+     * une transaction courte, supprimé hors transaction, et le résultat est
+     * enregistré dans une seconde transaction courte. Un lot dont le
+     * traitement s'interrompt redevient échu à la fin de la réservation.
+     */
+    public int processBatch() {
+        Claim claim = writeTransaction.execute(status -> claimBatch());
+        if (claim == null) {
+            return 0;
+        }
+
+        Set<String> failed = claim.toDelete().isEmpty() ? Set.of() : objectStorageService.deleteObjects(claim.toDelete());
+        List<String> deleted = claim.toDelete().stream()
+                .filter(objectName -> !failed.contains(objectName))
+                .toList();
+        // Copie locale du proxy d'images : les autres nœuds l'évinceront à leur rythme
+        imageDiskCache.ifAvailable(cache -> deleted.forEach(cache::invalidate));
+
+        int retried = writeTransaction.execute(status -> recordResults(claim.ids(), failed, deleted));
+        deletedCounter.increment(claim.size() - retried);
+        failedCounter.increment(retried);
+        return claim.size();
+    }
+
+    private Claim claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<StorageDeletion> batch = storageDeletionRepository.lockDueBatch(now, settings.getBatchSize());
+        if (batch.isEmpty()) {
+            return null;
+        }
+
+        // Les objets sont partagés entre annonces (clés par contenu) : une clé
+        // encore référencée sort de l'outbox sans être supprimée
+        Set<String> referenced = new HashSet<>(adRepository.findReferencedImages(batch.stream()
+                .map(StorageDeletion::getObjectName)
+                .toList()));
+        List<StorageDeletion> stillReferenced = new ArrayList<>();
+        List<Long> claimed = new ArrayList<>(batch.size());
+        LocalDateTime claimedUntil = now.plus(settings.getClaimDuration());
+        for (StorageDeletion deletion : batch) {
+            if (referenced.contains(deletion.getObjectName())) {
+                stillReferenced.add(deletion);
+            } else {
+                deletion.setNextAttemptAt(claimedUntil);
+                claimed.add(deletion.getId());
+            }
+        }
+        storageDeletionRepository.deleteAllInBatch(stillReferenced);
+        List<String> toDelete = batch.stream()
+                .map(StorageDeletion::getObjectName)
+                .filter(objectName -> !referenced.contains(objectName))
+                .distinct()
+                .toList();
+        return new Claim(batch.size(), claimed, toDelete);
+    }
+
+    // Retourne le nombre de suppressions reprogrammées
+    private int recordResults(List<Long> claimed, Set<String> failed, List<String> deleted) {
+        // Relues : une ligne dont la réservation a expiré a pu être traitée ailleurs entre-temps
+        List<StorageDeletion> rows = storageDeletionRepository.findAllById(claimed);
+        List<StorageDeletion> done = new ArrayList<>(rows.size());
+        for (StorageDeletion deletion : rows) {
+            if (failed.contains(deletion.getObjectName())) {
+                scheduleRetry(deletion);
+            } else {
+                done.add(deletion);
+            }
+        }
+        storageDeletionRepository.deleteAllInBatch(done);
+
+        // Les variantes des originaux supprimés passent à leur tour par l'outbox
+        List<String> variantNames = imageVariantService.forget(deleted.stream()
+                .filter(objectName -> !ImageVariant.isVariant(objectName))
+                .toList());
+        storageDeletionRepository.saveAll(variantNames.stream().map(StorageDeletion::new).toList());
+        return rows.size() - done.size();
+    }
+
+    @Transactional(readOnly = true)
+    public void refreshQueueDepth() {
+        queueDepth.set(storageDeletionRepository.count());
+    }
+
+    private void scheduleRetry(StorageDeletion deletion) {
+        int attempts = deletion.getAttempts() + 1;
+        Duration backoff = settings.getInitialBackoff().multipliedBy(1L << Math.min(attempts - 1, 20));
+        if (backoff.compareTo(settings.getMaxBackoff()) > 0) {
+            backoff = settings.getMaxBackoff();
+        }
+        deletion.setAttempts(attempts);
+        deletion.setNextAttemptAt(LocalDateTime.now().plus(backoff));
+        deletion.setLastError("Deletion failed on attempt " + attempts);
+        log.warn("Unable to delete object {} (attempt {}), retrying in {}", deletion.getObjectName(), attempts, backoff);
+    }
+
+    private record Claim(int size, List<Long> ids, List<String> toDelete) {
+    }
+}
@@ -0,0 +1,38 @@
+package com.leboncoin.service;
+
+import com.leboncoin.config.StorageProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Vide périodiquement l'outbox des suppressions, lot par lot.
+ */
+@Component
+public class StorageDeletionWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageDeletionWorker.class);
+
+    private final StorageDeletionService storageDeletionService;
+    private final StorageProperties.Outbox settings;
+
+    public StorageDeletionWorker(StorageDeletionService storageDeletionService, StorageProperties properties) {
+        this.storageDeletionService = storageDeletionService;
+        this.settings = properties.getOutbox();
+    }
+
+    @Scheduled(fixedDelayString = "${storage.outbox.poll-interval:PT5S}")
+    public void drain() {
+        try {
+            for (int i = 0; i < settings.getMaxBatchesPerRun(); i++) {
+                if (storageDeletionService.processBatch() < settings.getBatchSize()) {
+                    break;
+                }
+            }
+            storageDeletionService.refreshQueueDepth();
+        } catch (RuntimeException e) {
+            log.error("Storage deletion outbox drain failed", e);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.leboncoin.service;
+
+import com.leboncoin.config.StorageProperties;
+import com.leboncoin.entity.StorageGcCheckpoint;
+import com.leboncoin.repository.AdRepository;
+import com.leboncoin.repository.StorageGcCheckpointRepository;
+import com.leboncoin.storage.ObjectStorageService;
+import com.leboncoin.storage.StoredObject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Ramasse-miettes incrémental des objets orphelins (envoyés mais jamais
+ * rattachés, ou restés après un échec de suppression).
+ *
+ * Chaque exécution reprend le listing après la dernière clé examinée. Un
+ * filtre de Bloom des clés référencées, construit en début de cycle, écarte
+ * l'essentiel des objets ; les candidats restants sont vérifiés exactement en
+ * base puis confiés à l'outbox, qui les revérifie avant suppression.
+ *
+ * Aucune transaction n'englobe l'exécution : le listing et les pauses ont
+ * lieu hors transaction. Le point de reprise est réservé par bail, et chaque
+ * page est confiée à l'outbox dans une transaction courte qui avance le
+ * point de reprise.
+ */
+@Service
+public class StorageGarbageCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageGarbageCollector.class);
+
+    private static final String CHECKPOINT = "orphan-objects";
+    private static final int REFERENCED_KEYS_PAGE_SIZE = 5000;
+
+    private final AdRepository adRepository;
+    private final StorageGcCheckpointRepository checkpointRepository;
+    private final StorageDeletionService storageDeletionService;
+    private final ObjectStorageService objectStorageService;
+    private final StorageProperties.Gc settings;
+    private final TransactionTemplate writeTransaction;
+    private final Counter scannedCounter;
+    private final Counter orphanCounter;
+    private volatile ObjectKeyBloomFilter referencedKeys;
+
+    public StorageGarbageCollector(AdRepository adRepository, StorageGcCheckpointRepository checkpointRepository,
+            StorageDeletionService storageDeletionService, ObjectStorageService objectStorageService,
+            StorageProperties properties, MeterRegistry meterRegistry, PlatformTransactionManager transactionManager) {
+        this.adRepository = adRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.storageDeletionService = storageDeletionService;
+        this.objectStorageService = objectStorageService;
+        this.settings = properties.getGc();
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.scannedCounter = Counter.builder("storage.gc.scanned").register(meterRegistry);
+        this.orphanCounter = Counter.builder("storage.gc.orphans").register(meterRegistry);
+    }
+
+    /**
+     * Examine au plus maxObjectsPerRun objets et retourne le nombre
+     * d'orphelins confiés à l'outbox. Sans effet si une autre instance
+     * détient déjà le point de reprise.
+     */
+    public int collect() {
+        checkpointRepository.ensureExists(CHECKPOINT);
+        String token = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        if (checkpointRepository.claim(CHECKPOINT, token, now, leaseFrom(now)) == 0) {
+            return 0;
+        }
+        try {
+            return collect(token, now);
+        } finally {
+            checkpointRepository.release(CHECKPOINT, token);
+        }
+    }
+
+    private int collect(String token, LocalDateTime claimedAt) {
+        StorageGcCheckpoint checkpoint = checkpointRepository.findById(CHECKPOINT).orElseThrow();
+        String lastKey = checkpoint.getLastKey();
+        LocalDateTime cycleStartedAt = checkpoint.getCycleStartedAt();
+        if (lastKey == null) {
+            checkpointRepository.startCycle(CHECKPOINT, token, claimedAt);
+            cycleStartedAt = claimedAt;
+            referencedKeys = null;
+        }
+        if (referencedKeys == null) {
+            referencedKeys = buildReferencedKeys();
+        }
+
+        Instant cutoff = Instant.now().minus(settings.getGracePeriod());
+        int budget = settings.getMaxObjectsPerRun();
+        int orphans = 0;
+        boolean cycleDone = true;
+
+        // Préfixes parcourus dans l'ordre des clés : ceux qui précèdent le point de reprise sont terminés
+        for (String prefix : settings.getPrefixes().stream().sorted().toList()) {
+            if (lastKey != null && !lastKey.startsWith(prefix) && lastKey.compareTo(prefix) > 0) {
+                continue;
+            }
+            String startAfter = lastKey != null && lastKey.startsWith(prefix) ? lastKey : null;
+            while (budget > 0) {
+                int requested = Math.min(settings.getPageSize(), budget);
+                List<StoredObject> page = objectStorageService.listObjects(prefix, startAfter, requested);
+                if (page.isEmpty()) {
+                    break;
+                }
+                String pageLastKey = page.get(page.size() - 1).objectName();
+                Integer enqueued = writeTransaction.execute(status -> {
+                    int pageOrphans = enqueueOrphans(page, cutoff);
+                    LocalDateTime advancedAt = LocalDateTime.now();
+                    if (checkpointRepository.advance(CHECKPOINT, token, pageLastKey, advancedAt,
+                            leaseFrom(advancedAt)) == 0) {
+                        status.setRollbackOnly();
+                        return null;
+                    }
+                    return pageOrphans;
+                });
+                if (enqueued == null) {
+                    // Bail expiré : une autre instance a repris le point de reprise, cette page sera revue
+                    log.warn("Orphaned object collection claim lost after {}", lastKey);
+                    scannedCounter.increment(settings.getMaxObjectsPerRun() - budget);
+                    orphanCounter.increment(orphans);
+                    return orphans;
+                }
+                orphans += enqueued;
+                budget -= page.size();
+                startAfter = pageLastKey;
+                lastKey = pageLastKey;
+                if (page.size() < requested) {
+                    break;
+                }
+                pause();
+            }
+            if (budget <= 0) {
+                cycleDone = false;
+                break;
+            }
+        }
+
+        if (cycleDone) {
+            LocalDateTime completedAt = LocalDateTime.now();
+            checkpointRepository.advance(CHECKPOINT, token, null, completedAt, leaseFrom(completedAt));
+            log.info("Orphaned object collection cycle started at {} completed", cycleStartedAt);
+        }
+        scannedCounter.increment(settings.getMaxObjectsPerRun() - budget);
+        orphanCounter.increment(orphans);
+        return orphans;
+    }
+
+    private int enqueueOrphans(List<StoredObject> page, Instant cutoff) {
+        List<String> candidates = page.stream()
+                .filter(object -> object.lastModified().isBefore(cutoff))
+                .map(StoredObject::objectName)
+                .filter(objectName -> !referencedKeys.mightContain(objectName))
+                .toList();
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        // Le filtre date du début du cycle : les annonces créées depuis sont vérifiées ici
+        Set<String> referenced = new HashSet<>(adRepository.findReferencedImages(candidates));
+        List<String> orphans = new ArrayList<>(candidates.size());
+        for (String candidate : candidates) {
+            if (!referenced.contains(candidate)) {
+                orphans.add(candidate);
+            }
+        }
+        storageDeletionService.enqueue(orphans);
+        return orphans.size();
+    }
+
+    private ObjectKeyBloomFilter buildReferencedKeys() {
+        ObjectKeyBloomFilter filter = new ObjectKeyBloomFilter(adRepository.countImageKeys(),
+                settings.getFalsePositiveRate());
+        // Lecture par pages de clés : pas de curseur ouvert ni de connexion retenue pendant tout le parcours
+        String after = "";
+        List<String> keys;
+        do {
+            keys = adRepository.findImageKeysAfter(after, REFERENCED_KEYS_PAGE_SIZE);
+            keys.forEach(filter::put);
+            if (!keys.isEmpty()) {
+                after = keys.get(keys.size() - 1);
+            }
+        } while (keys.size() == REFERENCED_KEYS_PAGE_SIZE);
+        return filter;
+    }
+
+    // Le bail couvre largement une page ; il est prolongé à chaque avancée
+    private LocalDateTime leaseFrom(LocalDateTime now) {
+        return now.plus(settings.getInterval());
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(settings.getPageDelay().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
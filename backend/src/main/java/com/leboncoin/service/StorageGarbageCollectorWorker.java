@@ -0,0 +1,39 @@
+package com.leboncoin.service;
+
+import com.leboncoin.config.StorageProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lance périodiquement une passe bornée du ramasse-miettes des objets.
+ */
+@Component
+public class StorageGarbageCollectorWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageGarbageCollectorWorker.class);
+
+    private final StorageGarbageCollector storageGarbageCollector;
+    private final StorageProperties.Gc settings;
+
+    public StorageGarbageCollectorWorker(StorageGarbageCollector storageGarbageCollector, StorageProperties properties) {
+        this.storageGarbageCollector = storageGarbageCollector;
+        this.settings = properties.getGc();
+    }
+
+    @Scheduled(fixedDelayString = "${storage.gc.interval:PT10M}", initialDelayString = "${storage.gc.interval:PT10M}")
+    public void run() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        try {
+            int orphans = storageGarbageCollector.collect();
+            if (orphans > 0) {
+                log.info("Queued {} orphaned objects for deletion", orphans);
+            }
+        } catch (RuntimeException e) {
+            log.error("Orphaned object collection failed", e);
+        }
+    }
+}
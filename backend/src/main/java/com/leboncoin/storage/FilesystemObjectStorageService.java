@@ -0,0 +1,455 @@
+package com.leboncoin.storage;
+
+import com.leboncoin.config.StorageProperties;
+import com.leboncoin.entity.StorageDeletion;
+import com.leboncoin.repository.StorageDeletionRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stockage sur disque local, sans dépendance externe (nœuds isolés, CI).
+ *
+ * Mêmes clés par contenu que le stockage S3 : chaque envoi est écrit dans un
+ * fichier temporaire (canaux NIO) en calculant son SHA-256, puis déplacé
+ * atomiquement vers sa clé. Les objets sont servis par le backend sous des
+ * URLs signées et expirantes (voir LocalStorageController).
+ */
+@Service
+@ConditionalOnProperty(name = "storage.type", havingValue = "filesystem")
+public class FilesystemObjectStorageService implements ObjectStorageService {
+
+    private static final Logger log = LoggerFactory.getLogger(FilesystemObjectStorageService.class);
+
+    private static final String TEMP_DIR = ".tmp";
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+    private final Path root;
+    private final Path tempDir;
+    private final StorageProperties storageProperties;
+    private final StorageProperties.Filesystem settings;
+    private final LocalUrlSigner localUrlSigner;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StorageDeletionRepository storageDeletionRepository;
+
+    public FilesystemObjectStorageService(StorageProperties storageProperties, LocalUrlSigner localUrlSigner,
+            ApplicationEventPublisher eventPublisher, StorageDeletionRepository storageDeletionRepository) {
+        this.storageProperties = storageProperties;
+        this.settings = storageProperties.getFilesystem();
+        this.root = Paths.get(settings.getRoot()).toAbsolutePath().normalize();
+        this.tempDir = root.resolve(TEMP_DIR);
+        this.localUrlSigner = localUrlSigner;
+        this.eventPublisher = eventPublisher;
+        this.storageDeletionRepository = storageDeletionRepository;
+    }
+
+    @PostConstruct
+    void ensureRoot() {
+        try {
+            Files.createDirectories(tempDir);
+        } catch (IOException e) {
+            throw new StorageException("Unable to create storage directory " + root, e);
+        }
+    }
+
+    @Override
+    public String uploadImage(MultipartFile file) {
+        ImageKeys.validateFile(file);
+        try (InputStream inputStream = file.getInputStream()) {
+            return store(inputStream, ImageKeys.resolveContentType(file));
+        } catch (IOException e) {
+            throw new StorageException("Unable to store image", e);
+        }
+    }
+
+    /**
+     * Écriture disque locale : les fichiers sont traités l'un après l'autre,
+     * tout ou rien comme pour le stockage S3.
+     */
+    @Override
+    public List<String> uploadImages(List<MultipartFile> files) {
+        if (files == null || files.isEmpty()) {
+            return List.of();
+        }
+        files.forEach(ImageKeys::validateFile);
+        List<String> objectNames = new ArrayList<>(files.size());
+        try {
+            for (MultipartFile file : files) {
+                objectNames.add(uploadImage(file));
+            }
+        } catch (RuntimeException e) {
+            discardUploads(objectNames);
+            throw e;
+        }
+        return objectNames;
+    }
+
+    @Override
+    public String uploadImage(InputStream content, String filename) {
+        try {
+            byte[] header = new byte[ImageContentSniffer.HEADER_LENGTH];
+            int headerLength = content.readNBytes(header, 0, header.length);
+            if (headerLength == 0) {
+                throw new StorageException("Empty file cannot be uploaded");
+            }
+            String contentType = ImageContentSniffer.sniff(header, headerLength);
+            if (contentType == null) {
+                throw new StorageException("Unsupported image format");
+            }
+            return store(new SequenceInputStream(new ByteArrayInputStream(header, 0, headerLength), content),
+                    contentType);
+        } catch (IOException e) {
+            throw new StorageException("Unable to store image", e);
+        }
+    }
+
+    @Override
+    public PresignedUpload presignImageUpload(String contentType, long size, String sha256Hex) {
+        String normalizedType = ImageKeys.checkUploadIntent(contentType, size, sha256Hex,
+                storageProperties.getUpload().getMaxFileSize().toBytes());
+        String objectName = ImageKeys.contentAddressedName(
+                HexFormat.of().parseHex(sha256Hex.toLowerCase(Locale.ROOT)), normalizedType);
+
+        storageDeletionRepository.deletePendingFor(objectName);
+        if (Files.exists(resolve(objectName))) {
+            return new PresignedUpload(objectName, null, Map.of(), null, true);
+        }
+
+        Instant expiresAt = Instant.now().plus(settings.getUploadDuration());
+        String length = Long.toString(size);
+        String uploadUrl = localUrlSigner.signedUrl("PUT", objectName, expiresAt, normalizedType, length);
+        return new PresignedUpload(objectName, uploadUrl,
+                Map.of(HttpHeaders.CONTENT_TYPE, normalizedType, HttpHeaders.CONTENT_LENGTH, length), expiresAt, false);
+    }
+
+    /**
+     * Réception d'un envoi direct autorisé par {@link #presignImageUpload} :
+     * le contenu doit correspondre à l'empreinte portée par la clé.
+     */
+    public void storeSignedUpload(String objectName, InputStream content, long size) {
+        String expectedHash = hashOf(objectName);
+        if (expectedHash == null) {
+            throw new StorageException("Invalid image key: " + objectName);
+        }
+        try {
+            Path temp = Files.createTempFile(tempDir, "upload-", ".part");
+            try {
+                MessageDigest digest = ImageKeys.newSha256();
+                long written = write(temp, new DigestInputStream(content, digest));
+                if (written != size || !HexFormat.of().formatHex(digest.digest()).equals(expectedHash)) {
+                    throw new StorageException("Uploaded content does not match the signed digest");
+                }
+                commit(temp, objectName);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new StorageException("Unable to store image", e);
+        }
+    }
+
+    @Override
+    public void confirmUploads(Collection<String> objectNames) {
+        for (String objectName : objectNames) {
+            eventPublisher.publishEvent(new ImageUploadedEvent(objectName, checkImage(objectName)));
+        }
+    }
+
+    @Override
+    public void verifyStoredImages(Collection<String> objectNames) {
+        if (objectNames == null) {
+            return;
+        }
+        objectNames.forEach(this::checkImage);
+    }
+
+    @Override
+    public void discardUploads(Collection<String> objectNames) {
+        if (objectNames == null || objectNames.isEmpty()) {
+            return;
+        }
+        LocalDateTime notBefore = LocalDateTime.now().plus(storageProperties.getOutbox().getDeletionDelay());
+        storageDeletionRepository.saveAll(objectNames.stream()
+                .distinct()
+                .map(objectName -> new StorageDeletion(objectName, notBefore))
+                .toList());
+    }
+
+    @Override
+    public List<StoredObject> listObjects(String prefix, String startAfter, int limit) {
+        String baseKey = prefix.substring(0, prefix.lastIndexOf('/') + 1);
+        Path base = baseKey.isEmpty() ? root : resolve(baseKey);
+        List<StoredObject> objects = new ArrayList<>(Math.min(limit, 1024));
+        try {
+            listInto(base, baseKey, prefix, startAfter, limit, objects);
+        } catch (IOException e) {
+            throw new StorageException("Unable to list objects under %s".formatted(prefix), e);
+        }
+        return objects;
+    }
+
+    /**
+     * Parcours en profondeur dans l'ordre des clés, arrêté dès que la page est
+     * pleine : les répertoires dont toutes les clés précèdent startAfter ne
+     * sont pas ouverts, une page ne coûte donc pas un parcours de l'arbre.
+     */
+    private void listInto(Path directory, String directoryKey, String prefix, String startAfter, int limit,
+            List<StoredObject> objects) throws IOException {
+        List<ListingEntry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+            for (Path child : children) {
+                boolean isDirectory = Files.isDirectory(child);
+                // "a/" trie après "a-b" comme le feraient les clés complètes "a/x" et "a-b"
+                String key = directoryKey + child.getFileName() + (isDirectory ? "/" : "");
+                entries.add(new ListingEntry(key, child, isDirectory));
+            }
+        } catch (NoSuchFileException e) {
+            // Répertoire vidé et supprimé pendant le parcours
+            return;
+        }
+        entries.sort(Comparator.comparing(ListingEntry::key));
+
+        for (ListingEntry entry : entries) {
+            if (objects.size() >= limit) {
+                return;
+            }
+            String key = entry.key();
+            if (entry.isDirectory()) {
+                boolean inPrefix = key.startsWith(prefix) || prefix.startsWith(key);
+                boolean beforeStart = startAfter != null && key.compareTo(startAfter) < 0 && !startAfter.startsWith(key);
+                if (inPrefix && !beforeStart && !key.equals(TEMP_DIR + "/")) {
+                    listInto(entry.path(), key, prefix, startAfter, limit, objects);
+                }
+            } else if (key.startsWith(prefix) && (startAfter == null || key.compareTo(startAfter) > 0)
+                    && Files.isRegularFile(entry.path())) {
+                objects.add(new StoredObject(key, lastModified(entry.path())));
+            }
+        }
+    }
+
+    @Override
+    public InputStream getObject(String objectName) {
+        try {
+            return Files.newInputStream(resolve(objectName));
+        } catch (NoSuchFileException e) {
+            throw new ObjectNotFoundException(objectName);
+        } catch (IOException e) {
+            throw new StorageException("Unable to read object %s".formatted(objectName), e);
+        }
+    }
+
+    @Override
+    public boolean objectExists(String objectName) {
+        return Files.isRegularFile(resolve(objectName));
+    }
+
+    @Override
+    public void putObject(String objectName, byte[] content, String contentType) {
+        try {
+            Path temp = Files.createTempFile(tempDir, "put-", ".part");
+            try {
+                Files.write(temp, content);
+                Path target = resolve(objectName);
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new StorageException("Unable to write object %s".formatted(objectName), e);
+        }
+    }
+
+    @Override
+    public void deleteObject(String objectName) {
+        if (!StringUtils.hasText(objectName)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(resolve(objectName));
+        } catch (IOException e) {
+            throw new StorageException("Unable to delete object %s".formatted(objectName), e);
+        }
+    }
+
+    @Override
+    public Set<String> deleteObjects(Collection<String> objectNames) {
+        if (objectNames == null || objectNames.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> failed = new HashSet<>();
+        objectNames.stream().filter(StringUtils::hasText).distinct().forEach(objectName -> {
+            try {
+                Files.deleteIfExists(resolve(objectName));
+            } catch (IOException | StorageException e) {
+                log.warn("Unable to delete object {}: {}", objectName, e.getMessage());
+                failed.add(objectName);
+            }
+        });
+        return failed;
+    }
+
+    @Override
+    public String generatePresignedGetUrl(String objectName) {
+        if (!StringUtils.hasText(objectName)) {
+            return null;
+        }
+        return localUrlSigner.signedUrl("GET", objectName, Instant.now().plus(settings.getUrlDuration()));
+    }
+
+    @Override
+    public List<String> generatePresignedGetUrls(List<String> objectNames) {
+        if (objectNames == null || objectNames.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Instant expiresAt = Instant.now().plus(settings.getUrlDuration());
+        List<String> urls = new ArrayList<>(objectNames.size());
+        for (String objectName : objectNames) {
+            if (StringUtils.hasText(objectName)) {
+                urls.add(localUrlSigner.signedUrl("GET", objectName, expiresAt));
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * Fichier d'un objet existant, pour le service direct par le backend.
+     */
+    public Path locate(String objectName) {
+        Path path = resolve(objectName);
+        if (!Files.isRegularFile(path)) {
+            throw new ObjectNotFoundException(objectName);
+        }
+        return path;
+    }
+
+    public String contentTypeOf(String objectName) {
+        return ImageKeys.contentTypeOf(objectName);
+    }
+
+    private String store(InputStream content, String contentType) throws IOException {
+        Path temp = Files.createTempFile(tempDir, "upload-", ".part");
+        try {
+            MessageDigest digest = ImageKeys.newSha256();
+            write(temp, new DigestInputStream(content, digest));
+            String objectName = ImageKeys.contentAddressedName(digest.digest(), contentType);
+            if (commit(temp, objectName)) {
+                eventPublisher.publishEvent(new ImageUploadedEvent(objectName, contentType));
+            }
+            return objectName;
+        } catch (NoSuchAlgorithmException e) {
+            throw new StorageException("Unable to store image", e);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Place le fichier temporaire sous sa clé ; retourne false si le contenu
+     * était déjà stocké (sa suppression éventuellement en attente est annulée).
+     */
+    private boolean commit(Path temp, String objectName) throws IOException {
+        storageDeletionRepository.deletePendingFor(objectName);
+        Path target = resolve(objectName);
+        if (Files.exists(target)) {
+            return false;
+        }
+        Files.createDirectories(target.getParent());
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    private static long write(Path target, InputStream content) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             ReadableByteChannel source = Channels.newChannel(content)) {
+            long position = 0;
+            long transferred;
+            while ((transferred = channel.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                position += transferred;
+            }
+            return position;
+        }
+    }
+
+    private String checkImage(String objectName) {
+        if (!StringUtils.hasText(objectName) || !objectName.startsWith(ImageKeys.IMAGE_PREFIX)) {
+            throw new StorageException("Invalid image key: " + objectName);
+        }
+        if (!Files.isRegularFile(resolve(objectName))) {
+            throw new StorageException("Image not found in storage: " + objectName);
+        }
+        String contentType = ImageKeys.contentTypeOf(objectName);
+        if (!ImageKeys.ALLOWED_CONTENT_TYPES.contains(contentType)) {
+            throw new StorageException("Unsupported content type: " + contentType);
+        }
+        return contentType;
+    }
+
+    private Path resolve(String objectName) {
+        Path path = root.resolve(objectName).normalize();
+        if (!path.startsWith(root) || path.equals(root) || path.startsWith(tempDir)) {
+            throw new StorageException("Invalid object name: " + objectName);
+        }
+        return path;
+    }
+
+    // ads/sha256/xx/<hash>.<ext> -> <hash>
+    private static String hashOf(String objectName) {
+        String prefix = ImageKeys.IMAGE_PREFIX + "sha256/";
+        if (!objectName.startsWith(prefix)) {
+            return null;
+        }
+        String fileName = objectName.substring(objectName.lastIndexOf('/') + 1);
+        int dotIndex = fileName.indexOf('.');
+        String hash = dotIndex >= 0 ? fileName.substring(0, dotIndex) : fileName;
+        return ImageKeys.SHA256_HEX.matcher(hash).matches() ? hash.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static Instant lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toInstant();
+        } catch (NoSuchFileException e) {
+            return Instant.now();
+        } catch (IOException e) {
+            throw new StorageException("Unable to read object metadata", e);
+        }
+    }
+
+    private record ListingEntry(String key, Path path, boolean isDirectory) {
+    }
+}
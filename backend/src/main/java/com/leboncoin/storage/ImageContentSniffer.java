@@ -0,0 +1,69 @@
+package com.leboncoin.storage;
+
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Détermine le type d'une image à partir de ses premiers octets (signature),
+ * sans se fier au Content-Type annoncé par le client.
+ */
+final class ImageContentSniffer {
+
+    static final int HEADER_LENGTH = 16;
+
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final Set<String> HEIC_BRANDS = Set.of("heic", "heix", "hevc", "hevx", "heim", "heis");
+    private static final Set<String> HEIF_BRANDS = Set.of("mif1", "msf1");
+
+    private ImageContentSniffer() {
+    }
+
+    /**
+     * @return le type MIME reconnu, ou null si l'en-tête ne correspond à
+     * aucun format accepté
+     */
+    static String sniff(byte[] header, int length) {
+        if (startsWith(header, length, JPEG)) {
+            return MediaType.IMAGE_JPEG_VALUE;
+        }
+        if (startsWith(header, length, PNG)) {
+            return MediaType.IMAGE_PNG_VALUE;
+        }
+        if (length >= 6 && (ascii(header, 0, 6).equals("GIF87a") || ascii(header, 0, 6).equals("GIF89a"))) {
+            return MediaType.IMAGE_GIF_VALUE;
+        }
+        if (length >= 12 && ascii(header, 0, 4).equals("RIFF") && ascii(header, 8, 4).equals("WEBP")) {
+            return "image/webp";
+        }
+        // Conteneurs ISO BMFF : taille sur 4 octets, "ftyp", puis la marque principale
+        if (length >= 12 && ascii(header, 4, 4).equals("ftyp")) {
+            String brand = ascii(header, 8, 4);
+            if (HEIC_BRANDS.contains(brand)) {
+                return "image/heic";
+            }
+            if (HEIF_BRANDS.contains(brand)) {
+                return "image/heif";
+            }
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] header, int length, byte[] signature) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (header[i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String ascii(byte[] header, int offset, int length) {
+        return new String(header, offset, length, StandardCharsets.ISO_8859_1);
+    }
+}
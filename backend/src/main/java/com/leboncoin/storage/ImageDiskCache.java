@@ -0,0 +1,226 @@
+package com.leboncoin.storage;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.leboncoin.config.StorageProperties;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+/**
+ * Cache disque borné des images servies par le proxy.
+ *
+ * L'index est un cache Caffeine pondéré par la taille des fichiers : une
+ * entrée évincée supprime son fichier. Sur un défaut, un seul appelant lit
+ * l'objet depuis le stockage ; les requêtes concurrentes sur la même clé
+ * attendent ce remplissage au lieu de relancer un GET.
+ *
+ * Seul le nœud qui exécute une suppression évince l'objet de son cache : sur
+ * les autres, une entrée vérifiée depuis plus de revalidateAfter est
+ * recontrôlée au stockage avant d'être servie, et retirée si l'objet a
+ * disparu.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.proxy.enabled", havingValue = "true")
+public class ImageDiskCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageDiskCache.class);
+
+    private static final String TEMP_DIR = ".tmp";
+    private static final long NEVER_VERIFIED = Long.MIN_VALUE;
+
+    private final ObjectStorageService objectStorageService;
+    private final Path directory;
+    private final Path tempDir;
+    private final long revalidateAfterNanos;
+    private final AsyncCache<String, CachedFile> files;
+
+    public ImageDiskCache(ObjectStorageService objectStorageService, StorageProperties properties) {
+        StorageProperties.Proxy settings = properties.getProxy();
+        this.objectStorageService = objectStorageService;
+        this.directory = Paths.get(settings.getCacheDirectory()).toAbsolutePath().normalize();
+        this.tempDir = directory.resolve(TEMP_DIR);
+        this.revalidateAfterNanos = settings.getRevalidateAfter().toNanos();
+        this.files = Caffeine.newBuilder()
+                .maximumWeight(settings.getMaxCacheSize().toBytes())
+                .weigher((String objectName, CachedFile file) -> (int) Math.min(Integer.MAX_VALUE, file.size()))
+                .removalListener((String objectName, CachedFile file, RemovalCause cause) -> {
+                    // Un remplacement réutilise le même chemin : le fichier est toujours valide
+                    if (file != null && cause != RemovalCause.REPLACED) {
+                        deleteQuietly(file.path());
+                    }
+                })
+                .buildAsync();
+    }
+
+    /**
+     * Reprend les fichiers déjà présents, les plus anciens d'abord, pour que
+     * l'éviction reparte d'un ordre cohérent après un redémarrage. Des
+     * suppressions ont pu avoir lieu entre-temps : ils seront revérifiés.
+     */
+    @PostConstruct
+    void load() {
+        try {
+            Files.createDirectories(tempDir);
+            try (Stream<Path> leftovers = Files.list(tempDir)) {
+                leftovers.forEach(ImageDiskCache::deleteQuietly);
+            }
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.filter(path -> Files.isRegularFile(path) && !path.startsWith(tempDir))
+                        .sorted(Comparator.comparingLong(ImageDiskCache::lastModifiedMillis))
+                        .forEach(path -> files.put(directory.relativize(path).toString().replace('\\', '/'),
+                                CompletableFuture.completedFuture(new CachedFile(path, sizeOf(path), NEVER_VERIFIED))));
+            }
+        } catch (IOException e) {
+            throw new StorageException("Unable to initialize image cache in " + directory, e);
+        }
+    }
+
+    public static boolean isImageKey(String objectName) {
+        return objectName.startsWith(ImageKeys.IMAGE_PREFIX) || ImageVariant.isVariant(objectName);
+    }
+
+    public static String contentTypeOf(String objectName) {
+        return ImageKeys.contentTypeOf(objectName);
+    }
+
+    /**
+     * Fichier local de l'objet, lu depuis le stockage au premier accès.
+     */
+    public Path get(String objectName) {
+        if (!isImageKey(objectName)) {
+            throw new ObjectNotFoundException(objectName);
+        }
+        ConcurrentMap<String, CompletableFuture<CachedFile>> entries = files.asMap();
+        CompletableFuture<CachedFile> existing = entries.get(objectName);
+        if (existing != null) {
+            CachedFile file = await(existing);
+            if (Files.exists(file.path())) {
+                return revalidate(objectName, existing, file);
+            }
+            // Fichier supprimé hors du cache : l'entrée est remplie à nouveau
+            entries.remove(objectName, existing);
+        }
+
+        CompletableFuture<CachedFile> created = new CompletableFuture<>();
+        existing = entries.putIfAbsent(objectName, created);
+        if (existing != null) {
+            return await(existing).path();
+        }
+        try {
+            created.complete(fill(objectName));
+        } catch (RuntimeException e) {
+            // Caffeine retire seul les entrées en échec : le prochain appel réessaie
+            created.completeExceptionally(e);
+        }
+        return await(created).path();
+    }
+
+    public void invalidate(String objectName) {
+        files.synchronous().invalidate(objectName);
+    }
+
+    private Path revalidate(String objectName, CompletableFuture<CachedFile> entry, CachedFile file) {
+        long now = System.nanoTime();
+        if (file.verifiedAt() != NEVER_VERIFIED && now - file.verifiedAt() < revalidateAfterNanos) {
+            return file.path();
+        }
+        boolean exists;
+        try {
+            exists = objectStorageService.objectExists(objectName);
+        } catch (StorageException e) {
+            // Stockage indisponible : la copie locale reste servie, la vérification sera retentée
+            log.debug("Unable to revalidate cached object {}: {}", objectName, e.getMessage());
+            return file.path();
+        }
+        if (!exists) {
+            if (files.asMap().remove(objectName, entry)) {
+                // Sans attendre l'écouteur de retrait, exécuté de façon asynchrone
+                deleteQuietly(file.path());
+            }
+            throw new ObjectNotFoundException(objectName);
+        }
+        // Remplacement sur le même chemin : le fichier n'est pas supprimé
+        files.asMap().replace(objectName, entry,
+                CompletableFuture.completedFuture(new CachedFile(file.path(), file.size(), now)));
+        return file.path();
+    }
+
+    private CachedFile fill(String objectName) {
+        Path target = resolve(objectName);
+        try {
+            Path temp = Files.createTempFile(tempDir, "fill-", ".part");
+            try (InputStream content = objectStorageService.getObject(objectName)) {
+                long size = Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                return new CachedFile(target, size, System.nanoTime());
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new StorageException("Unable to cache object %s".formatted(objectName), e);
+        }
+    }
+
+    private Path resolve(String objectName) {
+        Path path = directory.resolve(objectName).normalize();
+        if (!path.startsWith(directory) || path.equals(directory) || path.startsWith(tempDir)) {
+            throw new ObjectNotFoundException(objectName);
+        }
+        return path;
+    }
+
+    private static CachedFile await(CompletableFuture<CachedFile> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof StorageException storageException
+                    ? storageException
+                    : new StorageException("Unable to cache object", e.getCause());
+        }
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModifiedMillis(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Unable to delete cached file {}: {}", path, e.getMessage());
+        }
+    }
+
+    // verifiedAt : System.nanoTime() de la dernière lecture ou vérification au stockage
+    private record CachedFile(Path path, long size, long verifiedAt) {
+    }
+}
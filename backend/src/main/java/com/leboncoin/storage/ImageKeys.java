@@ -0,0 +1,98 @@
+package com.leboncoin.storage;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Règles communes aux implémentations de stockage : types d'images acceptés
+ * et clés dérivées du contenu ({@code ads/sha256/xx/<hash>.<ext>}).
+ */
+final class ImageKeys {
+
+    static final String IMAGE_PREFIX = "ads/";
+
+    // Types acceptés et extension de la clé stockée
+    static final Map<String, String> EXTENSIONS = Map.of(
+            MediaType.IMAGE_JPEG_VALUE, ".jpg",
+            MediaType.IMAGE_PNG_VALUE, ".png",
+            MediaType.IMAGE_GIF_VALUE, ".gif",
+            "image/webp", ".webp",
+            "image/heif", ".heif",
+            "image/heic", ".heic"
+    );
+    static final Set<String> ALLOWED_CONTENT_TYPES = EXTENSIONS.keySet();
+
+    static final Pattern SHA256_HEX = Pattern.compile("[0-9a-fA-F]{64}");
+
+    private ImageKeys() {
+    }
+
+    static String contentAddressedName(byte[] sha256, String contentType) {
+        String hash = HexFormat.of().formatHex(sha256);
+        return IMAGE_PREFIX + "sha256/%s/%s%s".formatted(hash.substring(0, 2), hash, EXTENSIONS.getOrDefault(contentType, ""));
+    }
+
+    /**
+     * Contrôle une demande d'envoi direct et retourne le type normalisé.
+     */
+    static String checkUploadIntent(String contentType, long size, String sha256Hex, long maxSize) {
+        String normalizedType = contentType != null ? contentType.toLowerCase(Locale.ROOT) : "";
+        if (!ALLOWED_CONTENT_TYPES.contains(normalizedType)) {
+            throw new StorageException("Unsupported content type: " + contentType);
+        }
+        if (size <= 0 || size > maxSize) {
+            throw new StorageException("Invalid file size: " + size);
+        }
+        if (sha256Hex == null || !SHA256_HEX.matcher(sha256Hex).matches()) {
+            throw new StorageException("Invalid SHA-256 digest");
+        }
+        return normalizedType;
+    }
+
+    static MessageDigest newSha256() throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256");
+    }
+
+    static void validateFile(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new StorageException("Empty file cannot be uploaded");
+        }
+        String contentType = resolveContentType(file);
+        if (!ALLOWED_CONTENT_TYPES.contains(contentType)) {
+            throw new StorageException("Unsupported content type: " + contentType);
+        }
+    }
+
+    static String resolveContentType(MultipartFile file) {
+        String contentType = file.getContentType();
+        if (!StringUtils.hasText(contentType)) {
+            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+        return contentType.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Type déduit de l'extension de la clé, pour les stockages sans métadonnées.
+     */
+    static String contentTypeOf(String objectName) {
+        int dotIndex = objectName.lastIndexOf('.');
+        String extension = dotIndex >= 0 ? objectName.substring(dotIndex).toLowerCase(Locale.ROOT) : "";
+        if (extension.equals(".jpeg")) {
+            return MediaType.IMAGE_JPEG_VALUE;
+        }
+        return EXTENSIONS.entrySet().stream()
+                .filter(entry -> entry.getValue().equals(extension))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+    }
+}
@@ -0,0 +1,23 @@
+package com.leboncoin.storage;
+
+/**
+ * Publié après l'écriture d'une image originale dans le stockage.
+ */
+public class ImageUploadedEvent {
+
+    private final String objectName;
+    private final String contentType;
+
+    public ImageUploadedEvent(String objectName, String contentType) {
+        this.objectName = objectName;
+        this.contentType = contentType;
+    }
+
+    public String getObjectName() {
+        return objectName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
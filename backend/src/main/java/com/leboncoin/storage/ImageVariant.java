@@ -0,0 +1,33 @@
+package com.leboncoin.storage;
+
+import java.util.Locale;
+
+/**
+ * Déclinaisons redimensionnées d'une image, stockées en JPEG sous une clé
+ * dérivée de celle de l'original. Ordonnées de la plus grande à la plus
+ * petite : chacune est calculée à partir de la précédente.
+ */
+public enum ImageVariant {
+    MEDIUM(1024),
+    THUMB(320);
+
+    private static final String PREFIX = "variants/";
+
+    private final int maxSize;
+
+    ImageVariant(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public String objectName(String originalObjectName) {
+        return PREFIX + name().toLowerCase(Locale.ROOT) + "/" + originalObjectName + ".jpg";
+    }
+
+    public static boolean isVariant(String objectName) {
+        return objectName.startsWith(PREFIX);
+    }
+}
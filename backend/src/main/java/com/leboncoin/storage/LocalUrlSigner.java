@@ -0,0 +1,68 @@
+package com.leboncoin.storage;
+
+import com.leboncoin.config.StorageProperties;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UriUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * URLs signées (HMAC-SHA256) et expirantes du stockage sur disque. La
+ * signature couvre la méthode, la clé, l'expiration et, pour les envois,
+ * les contraintes imposées au client (type et taille).
+ */
+public class LocalUrlSigner {
+
+    public static final String OBJECTS_PATH = "/api/storage/objects/";
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final String baseUrl;
+    private final SecretKeySpec key;
+
+    public LocalUrlSigner(StorageProperties.Filesystem settings) {
+        if (!StringUtils.hasText(settings.getSigningSecret())) {
+            throw new IllegalStateException("storage.filesystem.signing-secret must be set");
+        }
+        this.baseUrl = settings.getPublicBaseUrl().replaceAll("/+$", "");
+        this.key = new SecretKeySpec(settings.getSigningSecret().getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    }
+
+    public String signedUrl(String method, String objectName, Instant expiresAt, String... constraints) {
+        long expires = expiresAt.getEpochSecond();
+        return baseUrl + OBJECTS_PATH + UriUtils.encodePath(objectName, StandardCharsets.UTF_8)
+                + "?expires=" + expires
+                + "&signature=" + sign(method, objectName, expires, constraints);
+    }
+
+    public boolean verify(String method, String objectName, long expires, String signature, String... constraints) {
+        if (signature == null || Instant.now().getEpochSecond() > expires) {
+            return false;
+        }
+        byte[] expected = sign(method, objectName, expires, constraints).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String sign(String method, String objectName, long expires, String... constraints) {
+        StringBuilder payload = new StringBuilder()
+                .append(method).append('\n')
+                .append(objectName).append('\n')
+                .append(expires);
+        for (String constraint : constraints) {
+            payload.append('\n').append(constraint);
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return HEX.formatHex(mac.doFinal(payload.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new StorageException("Unable to sign local URL", e);
+        }
+    }
+}
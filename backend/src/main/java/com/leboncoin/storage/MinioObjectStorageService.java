@@ -1,50 +1,104 @@
 package com.leboncoin.storage;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.leboncoin.config.MinioProperties;
+import com.leboncoin.config.StorageProperties;
+import com.leboncoin.entity.StorageDeletion;
+import com.leboncoin.repository.StorageDeletionRepository;
 import io.minio.BucketExistsArgs;
-import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.GetObjectArgs;
+import io.minio.ListObjectsArgs;
 import io.minio.MakeBucketArgs;
 import io.minio.MinioClient;
 import io.minio.PutObjectArgs;
 import io.minio.RemoveObjectArgs;
-import io.minio.http.Method;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.annotation.PostConstruct;
-import org.springframework.http.MediaType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.time.Duration;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
+@ConditionalOnProperty(name = "storage.type", havingValue = "minio", matchIfMissing = true)
 public class MinioObjectStorageService implements ObjectStorageService {
 
-    private static final Set<String> ALLOWED_CONTENT_TYPES = Set.of(
-            MediaType.IMAGE_JPEG_VALUE,
-            MediaType.IMAGE_PNG_VALUE,
-            MediaType.IMAGE_GIF_VALUE,
-            "image/webp",
-            "image/heif",
-            "image/heic"
-    );
+    private static final Logger log = LoggerFactory.getLogger(MinioObjectStorageService.class);
 
-    private static final DateTimeFormatter FOLDER_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+    private static final String TEMP_PREFIX = "uploads/tmp/";
 
     private final MinioClient minioClient;
     private final MinioProperties properties;
+    private final PresignedUrlSigner presignedUrlSigner;
+    private final StorageProperties storageProperties;
+    private final ExecutorService uploadExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StorageDeletionRepository storageDeletionRepository;
+    // URL signées réutilisées tant qu'il leur reste une part suffisante de validité
+    private final Cache<String, String> presignedUrlCache;
+    // Clés dont la présence a été constatée récemment (envoi, confirmation, stat) : pas de nouveau statObject
+    private final Cache<String, Boolean> verifiedImages;
 
-    public MinioObjectStorageService(MinioClient minioClient, MinioProperties properties) {
+    public MinioObjectStorageService(MinioClient minioClient, MinioProperties properties,
+            PresignedUrlSigner presignedUrlSigner, StorageProperties storageProperties,
+            @Qualifier("imageUploadExecutor") ExecutorService uploadExecutor, ApplicationEventPublisher eventPublisher,
+            StorageDeletionRepository storageDeletionRepository, MeterRegistry meterRegistry) {
         this.minioClient = minioClient;
         this.properties = properties;
+        this.presignedUrlSigner = presignedUrlSigner;
+        this.storageProperties = storageProperties;
+        this.uploadExecutor = uploadExecutor;
+        this.eventPublisher = eventPublisher;
+        this.storageDeletionRepository = storageDeletionRepository;
+        this.presignedUrlCache = buildPresignedUrlCache(properties, meterRegistry);
+        // Plus court que le délai de l'outbox : une clé abandonnée ne peut être supprimée tant qu'elle est ici
+        this.verifiedImages = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(storageProperties.getOutbox().getDeletionDelay().dividedBy(2))
+                .build();
     }
 
     @PostConstruct
@@ -63,85 +117,388 @@ public class MinioObjectStorageService implements ObjectStorageService {
         }
     }
 
+    /**
+     * Clé dérivée du contenu (SHA-256) : une image déjà présente n'est pas
+     * renvoyée au stockage, seule la clé existante est retournée.
+     */
     @Override
     public String uploadImage(MultipartFile file) {
-        validateFile(file);
-        String objectName = buildObjectName(file);
+        ImageKeys.validateFile(file);
+        String contentType = ImageKeys.resolveContentType(file);
 
-        try (InputStream inputStream = file.getInputStream()) {
-            PutObjectArgs args = PutObjectArgs.builder()
+        try {
+            // Le fichier est déjà local (mémoire ou disque) : deux lectures ne coûtent rien côté réseau
+            String objectName;
+            try (InputStream inputStream = file.getInputStream()) {
+                MessageDigest digest = ImageKeys.newSha256();
+                new DigestInputStream(inputStream, digest).transferTo(OutputStream.nullOutputStream());
+                objectName = ImageKeys.contentAddressedName(digest.digest(), contentType);
+            }
+            if (claimExisting(objectName)) {
+                return objectName;
+            }
+
+            try (InputStream inputStream = file.getInputStream()) {
+                minioClient.putObject(PutObjectArgs.builder()
+                        .bucket(properties.getBucket())
+                        .object(objectName)
+                        .stream(inputStream, file.getSize(), -1)
+                        .contentType(contentType)
+                        .build());
+            }
+            verifiedImages.put(objectName, true);
+            eventPublisher.publishEvent(new ImageUploadedEvent(objectName, contentType));
+            return objectName;
+        } catch (Exception e) {
+            throw new StorageException("Unable to upload image to MinIO", e);
+        }
+    }
+
+    /**
+     * Upload multipart S3 à taille de part fixe : seule la part en cours est
+     * gardée en mémoire, quelle que soit la taille de l'image. Le contenu est
+     * haché au passage et écrit sous une clé temporaire, puis copié côté
+     * serveur vers sa clé définitive si elle n'existe pas encore.
+     */
+    @Override
+    public String uploadImage(InputStream content, String filename) {
+        try {
+            byte[] header = new byte[ImageContentSniffer.HEADER_LENGTH];
+            int headerLength = content.readNBytes(header, 0, header.length);
+            if (headerLength == 0) {
+                throw new StorageException("Empty file cannot be uploaded");
+            }
+            String contentType = ImageContentSniffer.sniff(header, headerLength);
+            if (contentType == null) {
+                throw new StorageException("Unsupported image format");
+            }
+
+            String tempName = TEMP_PREFIX + UUID.randomUUID();
+            MessageDigest digest = ImageKeys.newSha256();
+            InputStream stream = new DigestInputStream(
+                    new SequenceInputStream(new ByteArrayInputStream(header, 0, headerLength), content), digest);
+            minioClient.putObject(PutObjectArgs.builder()
                     .bucket(properties.getBucket())
-                    .object(objectName)
-                    .stream(inputStream, file.getSize(), -1)
-                    .contentType(resolveContentType(file))
-                    .build();
+                    .object(tempName)
+                    .stream(stream, -1, storageProperties.getUpload().getPartSize().toBytes())
+                    .contentType(contentType)
+                    .build());
 
-            minioClient.putObject(args);
+            String objectName = ImageKeys.contentAddressedName(digest.digest(), contentType);
+            try {
+                if (!claimExisting(objectName)) {
+                    minioClient.copyObject(CopyObjectArgs.builder()
+                            .bucket(properties.getBucket())
+                            .object(objectName)
+                            .source(CopySource.builder()
+                                    .bucket(properties.getBucket())
+                                    .object(tempName)
+                                    .build())
+                            .build());
+                    verifiedImages.put(objectName, true);
+                    eventPublisher.publishEvent(new ImageUploadedEvent(objectName, contentType));
+                }
+            } finally {
+                deleteObjects(List.of(tempName));
+            }
             return objectName;
+        } catch (StorageException e) {
+            throw e;
         } catch (Exception e) {
             throw new StorageException("Unable to upload image to MinIO", e);
         }
     }
 
+    /**
+     * Envoi concurrent, au plus maxConcurrencyPerRequest fichiers à la fois
+     * pour une même requête. Tout ou rien : au premier échec les envois
+     * restants sont abandonnés et les objets déjà écrits confiés à l'outbox.
+     */
     @Override
     public List<String> uploadImages(List<MultipartFile> files) {
         if (files == null || files.isEmpty()) {
             return List.of();
         }
-        List<String> objectNames = new ArrayList<>(files.size());
-        for (MultipartFile file : files) {
-            objectNames.add(uploadImage(file));
+        files.forEach(ImageKeys::validateFile);
+        if (files.size() == 1) {
+            return List.of(uploadImage(files.get(0)));
         }
-        return objectNames;
+
+        String[] objectNames = new String[files.size()];
+        AtomicInteger nextFile = new AtomicInteger();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        // Chaque worker consomme la liste jusqu'à épuisement ou premier échec
+        Runnable worker = () -> {
+            int index;
+            while (failure.get() == null && (index = nextFile.getAndIncrement()) < files.size()) {
+                try {
+                    objectNames[index] = uploadImage(files.get(index));
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        };
+
+        int workers = Math.min(files.size(), Math.max(1, storageProperties.getUpload().getMaxConcurrencyPerRequest()));
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            futures.add(uploadExecutor.submit(worker));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, new StorageException("Image upload interrupted", e));
+                futures.forEach(pending -> pending.cancel(true));
+                break;
+            } catch (ExecutionException e) {
+                failure.compareAndSet(null, new StorageException("Unable to upload image to MinIO", e.getCause()));
+            }
+        }
+
+        RuntimeException error = failure.get();
+        if (error != null) {
+            discardUploads(Arrays.stream(objectNames).filter(Objects::nonNull).toList());
+            throw error;
+        }
+        return List.of(objectNames);
     }
 
     @Override
-    public void deleteObject(String objectName) {
-        if (!StringUtils.hasText(objectName)) {
+    public PresignedUpload presignImageUpload(String contentType, long size, String sha256Hex) {
+        String normalizedType = ImageKeys.checkUploadIntent(contentType, size, sha256Hex,
+                storageProperties.getUpload().getMaxFileSize().toBytes());
+        String hash = sha256Hex.toLowerCase(Locale.ROOT);
+        String objectName = ImageKeys.contentAddressedName(HexFormat.of().parseHex(hash), normalizedType);
+        try {
+            if (claimExisting(objectName)) {
+                return new PresignedUpload(objectName, null, Map.of(), null, true);
+            }
+        } catch (Exception e) {
+            throw new StorageException("Unable to check object %s".formatted(objectName), e);
+        }
+
+        long expirySeconds = clampPresignedExpiry(properties.getPresignedUploadDuration());
+        Map<String, String> headers = Map.of(
+                HttpHeaders.CONTENT_TYPE, normalizedType,
+                HttpHeaders.CONTENT_LENGTH, Long.toString(size));
+        String uploadUrl = presignedUrlSigner.presignPut(objectName, expirySeconds, headers, hash);
+        return new PresignedUpload(objectName, uploadUrl, headers, Instant.now().plusSeconds(expirySeconds), false);
+    }
+
+    @Override
+    public void confirmUploads(Collection<String> objectNames) {
+        for (String objectName : objectNames) {
+            String contentType = statImage(objectName);
+            eventPublisher.publishEvent(new ImageUploadedEvent(objectName, contentType));
+        }
+    }
+
+    /**
+     * Un statObject par clé non vérifiée récemment, au plus
+     * maxConcurrencyPerRequest à la fois. Échoue à la première clé absente.
+     */
+    @Override
+    public void verifyStoredImages(Collection<String> objectNames) {
+        if (objectNames == null || objectNames.isEmpty()) {
+            return;
+        }
+        List<String> unverified = objectNames.stream()
+                .distinct()
+                .filter(objectName -> verifiedImages.getIfPresent(objectName) == null)
+                .toList();
+        if (unverified.size() <= 1) {
+            unverified.forEach(this::statImage);
             return;
         }
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Runnable worker = () -> {
+            int index;
+            while (failure.get() == null && (index = next.getAndIncrement()) < unverified.size()) {
+                try {
+                    statImage(unverified.get(index));
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        };
+
+        int workers = Math.min(unverified.size(),
+                Math.max(1, storageProperties.getUpload().getMaxConcurrencyPerRequest()));
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            futures.add(uploadExecutor.submit(worker));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> pending.cancel(true));
+                throw new StorageException("Image verification interrupted", e);
+            } catch (ExecutionException e) {
+                failure.compareAndSet(null, new StorageException("Unable to verify images", e.getCause()));
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Les clés pouvant être partagées, l'abandon passe par l'outbox : le
+     * worker ne supprime que les objets qu'aucune annonce ne référence.
+     */
+    @Override
+    public void discardUploads(Collection<String> objectNames) {
+        if (objectNames == null || objectNames.isEmpty()) {
+            return;
+        }
+        LocalDateTime notBefore = LocalDateTime.now().plus(storageProperties.getOutbox().getDeletionDelay());
+        storageDeletionRepository.saveAll(objectNames.stream()
+                .distinct()
+                .map(objectName -> new StorageDeletion(objectName, notBefore))
+                .toList());
+    }
+
+    @Override
+    public List<StoredObject> listObjects(String prefix, String startAfter, int limit) {
+        ListObjectsArgs.Builder args = ListObjectsArgs.builder()
+                .bucket(properties.getBucket())
+                .prefix(prefix)
+                .recursive(true)
+                .maxKeys(Math.min(limit, 1000));
+        if (startAfter != null) {
+            args.startAfter(startAfter);
+        }
+        List<StoredObject> objects = new ArrayList<>(limit);
         try {
-            minioClient.removeObject(RemoveObjectArgs.builder()
+            // Itérable paresseux : on s'arrête dès la limite atteinte
+            for (Result<Item> result : minioClient.listObjects(args.build())) {
+                Item item = result.get();
+                objects.add(new StoredObject(item.objectName(), item.lastModified().toInstant()));
+                if (objects.size() >= limit) {
+                    break;
+                }
+            }
+            return objects;
+        } catch (Exception e) {
+            throw new StorageException("Unable to list objects under %s".formatted(prefix), e);
+        }
+    }
+
+    @Override
+    public InputStream getObject(String objectName) {
+        try {
+            return minioClient.getObject(GetObjectArgs.builder()
                     .bucket(properties.getBucket())
                     .object(objectName)
                     .build());
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                throw new ObjectNotFoundException(objectName);
+            }
+            throw new StorageException("Unable to read object %s".formatted(objectName), e);
         } catch (Exception e) {
-            throw new StorageException("Unable to delete object %s".formatted(objectName), e);
+            throw new StorageException("Unable to read object %s".formatted(objectName), e);
         }
     }
 
     @Override
-    public void deleteObjects(Collection<String> objectNames) {
-        if (objectNames == null || objectNames.isEmpty()) {
-            return;
+    public boolean objectExists(String objectName) {
+        try {
+            minioClient.statObject(StatObjectArgs.builder()
+                    .bucket(properties.getBucket())
+                    .object(objectName)
+                    .build());
+            return true;
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return false;
+            }
+            throw new StorageException("Unable to check object %s".formatted(objectName), e);
+        } catch (Exception e) {
+            throw new StorageException("Unable to check object %s".formatted(objectName), e);
         }
-        objectNames.forEach(this::deleteObject);
     }
 
     @Override
-    public String generatePresignedGetUrl(String objectName) {
+    public void putObject(String objectName, byte[] content, String contentType) {
+        try {
+            minioClient.putObject(PutObjectArgs.builder()
+                    .bucket(properties.getBucket())
+                    .object(objectName)
+                    .stream(new ByteArrayInputStream(content), content.length, -1)
+                    .contentType(contentType)
+                    .build());
+        } catch (Exception e) {
+            throw new StorageException("Unable to write object %s".formatted(objectName), e);
+        }
+    }
+
+    @Override
+    public void deleteObject(String objectName) {
         if (!StringUtils.hasText(objectName)) {
-            return null;
+            return;
         }
         try {
-            int expirySeconds = Math.toIntExact(clampPresignedExpiry(properties.getPresignedUrlDuration()));
-            String presignedUrl = minioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+            minioClient.removeObject(RemoveObjectArgs.builder()
                     .bucket(properties.getBucket())
                     .object(objectName)
-                    .method(Method.GET)
-                    .expiry(expirySeconds)
                     .build());
+            evictDeleted(List.of(objectName));
+        } catch (Exception e) {
+            throw new StorageException("Unable to delete object %s".formatted(objectName), e);
+        }
+    }
 
-            String internalEndpoint = properties.getEndpoint();
-            String externalEndpoint = properties.getExternalEndpoint();
-            if (!internalEndpoint.equals(externalEndpoint)) {
-                presignedUrl = presignedUrl.replace(internalEndpoint, externalEndpoint);
+    @Override
+    public Set<String> deleteObjects(Collection<String> objectNames) {
+        if (objectNames == null || objectNames.isEmpty()) {
+            return Set.of();
+        }
+        List<String> names = objectNames.stream()
+                .filter(StringUtils::hasText)
+                .distinct()
+                .toList();
+        List<DeleteObject> objects = names.stream()
+                .map(DeleteObject::new)
+                .toList();
+        evictDeleted(names);
+        Set<String> failed = new HashSet<>();
+        try {
+            // Un seul appel DeleteObjects (découpé par lots de 1000 par le SDK) ;
+            // les résultats sont paresseux et doivent être parcourus
+            Iterable<Result<DeleteError>> results = minioClient.removeObjects(RemoveObjectsArgs.builder()
+                    .bucket(properties.getBucket())
+                    .objects(objects)
+                    .build());
+            for (Result<DeleteError> result : results) {
+                failed.add(result.get().objectName());
             }
-
-            return presignedUrl;
         } catch (Exception e) {
-            throw new StorageException("Unable to generate presigned URL for object %s".formatted(objectName), e);
+            log.warn("Bulk deletion of {} objects failed: {}", names.size(), e.getMessage());
+            failed.addAll(names);
         }
+        return failed;
+    }
+
+    @Override
+    public String generatePresignedGetUrl(String objectName) {
+        if (!StringUtils.hasText(objectName)) {
+            return null;
+        }
+        if (presignedUrlCache != null) {
+            return presignedUrlCache.get(objectName, this::signGetUrl);
+        }
+        return signGetUrl(objectName);
+    }
+
+    private String signGetUrl(String objectName) {
+        return presignedUrlSigner.presignGet(objectName, clampPresignedExpiry(properties.getPresignedUrlDuration()));
     }
 
     @Override
@@ -156,48 +513,76 @@ public class MinioObjectStorageService implements ObjectStorageService {
         return urls;
     }
 
-    private void validateFile(MultipartFile file) {
-        if (file == null || file.isEmpty()) {
-            throw new StorageException("Empty file cannot be uploaded");
-        }
-        String contentType = resolveContentType(file);
-        if (!ALLOWED_CONTENT_TYPES.contains(contentType)) {
-            throw new StorageException("Unsupported content type: " + contentType);
+    private Cache<String, String> buildPresignedUrlCache(MinioProperties properties, MeterRegistry meterRegistry) {
+        MinioProperties.PresignedUrlCache settings = properties.getPresignedUrlCache();
+        if (!settings.isEnabled()) {
+            return null;
         }
+        double fraction = Math.min(Math.max(settings.getReuseFraction(), 0.0), 1.0);
+        long reuseSeconds = (long) (clampPresignedExpiry(properties.getPresignedUrlDuration()) * fraction);
+        Cache<String, String> cache = Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumSize())
+                .expireAfterWrite(Duration.ofSeconds(reuseSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "storage.presigned-urls");
+        return cache;
     }
 
-    private String resolveContentType(MultipartFile file) {
-        String contentType = file.getContentType();
-        if (!StringUtils.hasText(contentType)) {
-            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
-        }
-        String normalized = contentType.toLowerCase(Locale.ROOT);
-        if (ALLOWED_CONTENT_TYPES.contains(normalized)) {
-            return normalized;
+    private void evictDeleted(Collection<String> objectNames) {
+        verifiedImages.invalidateAll(objectNames);
+        if (presignedUrlCache != null) {
+            presignedUrlCache.invalidateAll(objectNames);
         }
-        return normalized;
     }
 
-    private String buildObjectName(MultipartFile file) {
-        String folder = FOLDER_FORMATTER.format(LocalDate.now());
-        String extension = extractExtension(file.getOriginalFilename());
-        return "ads/%s/%s%s".formatted(folder, UUID.randomUUID(), extension);
+    /**
+     * Réutilise un objet existant : une suppression encore en attente dans
+     * l'outbox est annulée avant de vérifier sa présence, pour que l'objet
+     * ne disparaisse pas sous la nouvelle référence.
+     */
+    private boolean claimExisting(String objectName) throws Exception {
+        storageDeletionRepository.deletePendingFor(objectName);
+        try {
+            minioClient.statObject(StatObjectArgs.builder()
+                    .bucket(properties.getBucket())
+                    .object(objectName)
+                    .build());
+            verifiedImages.put(objectName, true);
+            return true;
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return false;
+            }
+            throw e;
+        }
     }
 
-    private String extractExtension(String filename) {
-        if (!StringUtils.hasText(filename)) {
-            return "";
+    private String statImage(String objectName) {
+        if (!StringUtils.hasText(objectName) || !objectName.startsWith(ImageKeys.IMAGE_PREFIX)) {
+            throw new StorageException("Invalid image key: " + objectName);
         }
-        String cleanedFilename = filename.strip();
-        int dotIndex = cleanedFilename.lastIndexOf('.');
-        if (dotIndex == -1) {
-            return "";
-        }
-        String ext = cleanedFilename.substring(dotIndex);
-        if (!ext.matches("\\.[A-Za-z0-9]{1,6}")) {
-            return "";
+        try {
+            StatObjectResponse stat = minioClient.statObject(StatObjectArgs.builder()
+                    .bucket(properties.getBucket())
+                    .object(objectName)
+                    .build());
+            String contentType = stat.contentType() != null ? stat.contentType().toLowerCase(Locale.ROOT) : "";
+            if (!ImageKeys.ALLOWED_CONTENT_TYPES.contains(contentType)) {
+                throw new StorageException("Unsupported content type: " + stat.contentType());
+            }
+            verifiedImages.put(objectName, true);
+            return contentType;
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                throw new StorageException("Image not found in storage: " + objectName);
+            }
+            throw new StorageException("Unable to check object %s".formatted(objectName), e);
+        } catch (StorageException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new StorageException("Unable to check object %s".formatted(objectName), e);
         }
-        return ext.toLowerCase(Locale.ROOT);
     }
 
     private long clampPresignedExpiry(Duration duration) {
@@ -0,0 +1,8 @@
+package com.leboncoin.storage;
+
+public class ObjectNotFoundException extends StorageException {
+
+    public ObjectNotFoundException(String objectName) {
+        super("Object not found: " + objectName);
+    }
+}
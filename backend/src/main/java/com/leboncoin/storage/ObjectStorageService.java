@@ -2,8 +2,10 @@ package com.leboncoin.storage;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface ObjectStorageService {
 
@@ -11,9 +13,55 @@ public interface ObjectStorageService {
 
     List<String> uploadImages(List<MultipartFile> files);
 
+    /**
+     * Envoie une image de taille inconnue en la lisant au fil de l'eau ; le
+     * type est déterminé à partir des premiers octets.
+     */
+    String uploadImage(InputStream content, String filename);
+
+    /**
+     * Prépare l'envoi direct d'une image par le client (PUT présigné). Le type,
+     * la taille et le SHA-256 annoncés sont imposés par la signature.
+     */
+    PresignedUpload presignImageUpload(String contentType, long size, String sha256Hex);
+
+    /**
+     * Vérifie la présence des images envoyées directement par le client et
+     * déclenche leur traitement (variantes).
+     */
+    void confirmUploads(Collection<String> objectNames);
+
+    /**
+     * Refuse les clés d'images absentes du stockage.
+     */
+    void verifyStoredImages(Collection<String> objectNames);
+
+    /**
+     * Abandonne des objets envoyés mais jamais rattachés à une annonce.
+     */
+    void discardUploads(Collection<String> objectNames);
+
+    /**
+     * Liste au plus {@code limit} objets du préfixe, dans l'ordre des clés,
+     * à partir de la clé suivant {@code startAfter} (null pour le début).
+     */
+    List<StoredObject> listObjects(String prefix, String startAfter, int limit);
+
+    InputStream getObject(String objectName);
+
+    /**
+     * Présence actuelle de l'objet dans le stockage, sans cache.
+     */
+    boolean objectExists(String objectName);
+
+    void putObject(String objectName, byte[] content, String contentType);
+
     void deleteObject(String objectName);
 
-    void deleteObjects(Collection<String> objectNames);
+    /**
+     * Supprime les objets en lot et retourne ceux qui n'ont pas pu l'être.
+     */
+    Set<String> deleteObjects(Collection<String> objectNames);
 
     String generatePresignedGetUrl(String objectName);
 
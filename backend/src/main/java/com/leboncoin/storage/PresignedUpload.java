@@ -0,0 +1,12 @@
+package com.leboncoin.storage;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Autorisation d'envoi direct d'une image vers le stockage. Quand le contenu
+ * y est déjà ({@code alreadyStored}), aucune URL n'est émise.
+ */
+public record PresignedUpload(String objectName, String uploadUrl, Map<String, String> headers, Instant expiresAt,
+        boolean alreadyStored) {
+}
@@ -0,0 +1,180 @@
+package com.leboncoin.storage;
+
+import com.leboncoin.config.MinioProperties;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Calcul local des URLs présignées (AWS Signature V4, paramètres de requête),
+ * sans appel réseau ni builders du SDK : la clé de signature du jour est
+ * dérivée une seule fois, et l'URL est signée directement pour l'endpoint
+ * externe (l'en-tête Host signé est celui que verra le navigateur).
+ *
+ * L'endpoint externe ne porte pas de chemin : MinIO vérifie la signature sur
+ * le chemin qu'il reçoit (/bucket/clé), qu'un proxy retirant un préfixe ne
+ * lui transmettrait pas. Un tel endpoint est refusé au démarrage.
+ */
+public class PresignedUrlSigner {
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SERVICE = "s3";
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")
+            .withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter SCOPE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd")
+            .withZone(ZoneOffset.UTC);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final String baseUrl;
+    private final String host;
+    private final String bucket;
+    private final String accessKey;
+    private final String secretKey;
+    private final String region;
+
+    private volatile SigningKey signingKey;
+
+    public PresignedUrlSigner(MinioProperties properties) {
+        URI endpoint = URI.create(properties.getExternalEndpoint());
+        String path = endpoint.getRawPath();
+        if ((path != null && !path.isEmpty() && !path.equals("/")) || endpoint.getRawQuery() != null) {
+            throw new IllegalStateException("MinIO external endpoint must not have a path or query: "
+                    + properties.getExternalEndpoint());
+        }
+        int port = endpoint.getPort();
+        boolean defaultPort = port == -1
+                || ("http".equals(endpoint.getScheme()) && port == 80)
+                || ("https".equals(endpoint.getScheme()) && port == 443);
+        this.host = defaultPort ? endpoint.getHost() : endpoint.getHost() + ":" + port;
+        this.baseUrl = endpoint.getScheme() + "://" + host;
+        this.bucket = properties.getBucket();
+        this.accessKey = properties.getAccessKey();
+        this.secretKey = properties.getSecretKey();
+        this.region = properties.getRegion();
+    }
+
+    public String presignGet(String objectName, long expirySeconds) {
+        return presign("GET", objectName, expirySeconds, Map.of(), Instant.now());
+    }
+
+    /**
+     * URL d'envoi direct : les en-têtes donnés font partie de la signature et
+     * doivent être renvoyés à l'identique ; le SHA-256 du contenu, passé en
+     * paramètre signé, est vérifié par MinIO à la réception.
+     */
+    public String presignPut(String objectName, long expirySeconds, Map<String, String> headers, String sha256Hex) {
+        return presign("PUT", objectName, expirySeconds, headers, sha256Hex, Instant.now());
+    }
+
+    String presign(String method, String objectName, long expirySeconds, Map<String, String> headers, Instant now) {
+        return presign(method, objectName, expirySeconds, headers, null, now);
+    }
+
+    String presign(String method, String objectName, long expirySeconds, Map<String, String> headers,
+            String payloadHash, Instant now) {
+        String amzDate = AMZ_DATE.format(now);
+        String scopeDate = SCOPE_DATE.format(now);
+        String scope = scopeDate + "/" + region + "/" + SERVICE + "/aws4_request";
+
+        // En-têtes signés : host + ceux imposés au client, triés et en minuscules
+        Map<String, String> signedHeaders = new TreeMap<>();
+        signedHeaders.put("host", host);
+        headers.forEach((name, value) -> signedHeaders.put(name.toLowerCase(Locale.ROOT), value.trim()));
+        String signedHeaderNames = String.join(";", signedHeaders.keySet());
+
+        Map<String, String> query = new TreeMap<>();
+        query.put("X-Amz-Algorithm", ALGORITHM);
+        query.put("X-Amz-Credential", accessKey + "/" + scope);
+        query.put("X-Amz-Date", amzDate);
+        query.put("X-Amz-Expires", Long.toString(expirySeconds));
+        query.put("X-Amz-SignedHeaders", signedHeaderNames);
+        if (payloadHash != null) {
+            query.put("X-Amz-Content-Sha256", payloadHash);
+        }
+        StringBuilder canonicalQuery = new StringBuilder();
+        query.forEach((name, value) -> {
+            if (!canonicalQuery.isEmpty()) {
+                canonicalQuery.append('&');
+            }
+            canonicalQuery.append(encode(name, false)).append('=').append(encode(value, false));
+        });
+
+        String canonicalUri = "/" + bucket + "/" + encode(objectName, true);
+        StringBuilder canonicalRequest = new StringBuilder()
+                .append(method).append('\n')
+                .append(canonicalUri).append('\n')
+                .append(canonicalQuery).append('\n');
+        signedHeaders.forEach((name, value) -> canonicalRequest.append(name).append(':').append(value).append('\n'));
+        canonicalRequest.append('\n')
+                .append(signedHeaderNames).append('\n')
+                .append(payloadHash != null ? payloadHash : UNSIGNED_PAYLOAD);
+
+        String stringToSign = ALGORITHM + "\n" + amzDate + "\n" + scope + "\n"
+                + HEX.formatHex(sha256(canonicalRequest.toString()));
+        String signature = HEX.formatHex(hmac(signingKey(scopeDate), stringToSign));
+
+        return baseUrl + canonicalUri + "?" + canonicalQuery + "&X-Amz-Signature=" + signature;
+    }
+
+    private byte[] signingKey(String scopeDate) {
+        SigningKey current = signingKey;
+        if (current == null || !current.date().equals(scopeDate)) {
+            byte[] dateKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), scopeDate);
+            byte[] regionKey = hmac(dateKey, region);
+            byte[] serviceKey = hmac(regionKey, SERVICE);
+            current = new SigningKey(scopeDate, hmac(serviceKey, "aws4_request"));
+            signingKey = current;
+        }
+        return current.key();
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new StorageException("Unable to compute request signature", e);
+        }
+    }
+
+    private static byte[] sha256(String data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new StorageException("Unable to compute request signature", e);
+        }
+    }
+
+    // Encodage URI au sens SigV4 : seuls les caractères non réservés restent en clair
+    private static String encode(String value, boolean keepSlash) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        StringBuilder encoded = new StringBuilder(bytes.length + 16);
+        for (byte b : bytes) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (keepSlash && c == '/')) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private record SigningKey(String date, byte[] key) {
+    }
+}
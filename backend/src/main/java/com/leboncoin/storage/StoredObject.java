@@ -0,0 +1,6 @@
+package com.leboncoin.storage;
+
+import java.time.Instant;
+
+public record StoredObject(String objectName, Instant lastModified) {
+}
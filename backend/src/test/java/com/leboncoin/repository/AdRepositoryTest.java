@@ -0,0 +1,158 @@
+package com.leboncoin.repository;
+
+import com.leboncoin.entity.Ad;
+import com.leboncoin.entity.Category;
+import com.leboncoin.entity.CategoryEnum;
+import com.leboncoin.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(SearchCapabilities.class)
+class AdRepositoryTest {
+
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        Category car = new Category(CategoryEnum.CAR);
+        Category house = new Category(CategoryEnum.HOUSE);
+        entityManager.persist(car);
+        entityManager.persist(house);
+
+        for (int u = 0; u < 5; u++) {
+            User user = new User("seller" + u + "@example.com", "hash");
+            entityManager.persist(user);
+            for (int i = 0; i < 12; i++) {
+                Ad ad = new Ad("Ad " + u + "-" + i, "Description", 100 + i, i % 2 == 0 ? car : house, user);
+                // Ordre volontairement non alphabétique : il doit être conservé tel quel
+                ad.setImages(List.of("ads/2024/01/01/" + u + "-" + i + "-b.jpg", "ads/2024/01/01/" + u + "-" + i + "-a.jpg"));
+                entityManager.persist(ad);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void searchPageStatementCountDoesNotGrowWithPageSize() {
+        long smallPage = countStatementsForPage(5);
+        long largePage = countStatementsForPage(50);
+
+        assertEquals(smallPage, largePage);
+    }
+
+    @Test
+    void keysetScrollLoadsAssociationsWithoutPerRowSelects() {
+        Statistics statistics = statistics();
+
+        Window<Ad> window = adRepository.findBy(AdRepository.fetchListAssociations(), query -> query
+                .sortBy(Sort.by(Sort.Order.asc("price"), Sort.Order.asc("id")))
+                .limit(40)
+                .scroll(ScrollPosition.keyset()));
+        window.forEach(this::touchListFields);
+
+        assertEquals(40, window.size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findAllLoadsAssociationsWithoutPerRowSelects() {
+        Statistics statistics = statistics();
+
+        List<Ad> ads = adRepository.findAll();
+        ads.forEach(this::touchListFields);
+
+        // 1 requête pour les annonces + 2 lots de 50 collections d'images
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void listViewSearchLoadsPageImagesInOrderWithOneQuery() {
+        Statistics statistics = statistics();
+
+        Page<AdListView> page = adRepository.searchListViews(
+                new AdSearchFilter(CategoryEnum.CAR, "AD 1", 100, null), PageRequest.of(0, 100));
+
+        assertEquals(6, page.getTotalElements());
+        page.forEach(view -> {
+            assertEquals(2, view.images().size());
+            assertTrue(view.images().get(0).endsWith("-b.jpg"));
+        });
+        // 1 requête pour les annonces + 1 pour les images de toute la page
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void listViewsByIdsKeepRequestedOrderAndImageOrder() {
+        List<Integer> ids = adRepository.searchListViews(new AdSearchFilter(null, null, null, null),
+                PageRequest.of(0, 3)).map(AdListView::id).getContent();
+        List<Integer> reversed = List.of(ids.get(2), ids.get(0), ids.get(1));
+
+        List<AdListView> views = adRepository.findListViewsByIds(reversed);
+
+        assertEquals(reversed, views.stream().map(AdListView::id).toList());
+        views.forEach(view -> assertTrue(view.images().get(0).endsWith("-b.jpg")));
+    }
+
+    @Test
+    void facetsAreCountedInOneGroupedQuery() {
+        Statistics statistics = statistics();
+
+        List<AdFacetRow> rows = adRepository.countFacets(new AdSearchFilter(null, null, null, null), List.of(105));
+
+        long cars = rows.stream().filter(row -> row.category() == CategoryEnum.CAR).mapToLong(AdFacetRow::count).sum();
+        long cheap = rows.stream().filter(row -> row.bucket() == 0).mapToLong(AdFacetRow::count).sum();
+        assertEquals(30, cars);
+        assertEquals(25, cheap);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private long countStatementsForPage(int size) {
+        entityManager.clear();
+        Statistics statistics = statistics();
+
+        Specification<Ad> spec = (root, query, criteriaBuilder) -> criteriaBuilder.greaterThanOrEqualTo(root.get("price"), 0);
+        Page<Ad> page = adRepository.findAll(spec, PageRequest.of(0, size, Sort.by("id").descending()));
+        page.forEach(this::touchListFields);
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void touchListFields(Ad ad) {
+        ad.getCategory().getName();
+        ad.getUser().getEmail();
+        ad.getImages().size();
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
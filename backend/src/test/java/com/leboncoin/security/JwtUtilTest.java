@@ -0,0 +1,64 @@
+package com.leboncoin.security;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Le cache des jetons vérifiés ne doit ni prolonger un jeton expiré ni
+ * servir un jeton modifié.
+ */
+class JwtUtilTest {
+
+    private static final String EMAIL = "jwt@example.com";
+
+    @Test
+    void cachedTokenStopsVerifyingAfterExpiration() throws InterruptedException {
+        JwtUtil jwtUtil = jwtUtil(1000L);
+        String token = jwtUtil.generateToken(User.withUsername(EMAIL).password("").build());
+
+        assertEquals(EMAIL, jwtUtil.parseAndVerify(token).getSubject());
+        // exp est arrondi à la seconde : le jeton expire au plus tard une seconde après sa création
+        Thread.sleep(1100);
+
+        assertThrows(ExpiredJwtException.class, () -> jwtUtil.parseAndVerify(token));
+    }
+
+    @Test
+    void tamperedTokenIsNotServedFromCache() {
+        JwtUtil jwtUtil = jwtUtil(Duration.ofHours(1).toMillis());
+        String token = jwtUtil.generateToken(User.withUsername(EMAIL).password("").build());
+        assertEquals(EMAIL, jwtUtil.parseAndVerify(token).getSubject());
+
+        // Même en-tête et même signature, sujet remplacé
+        String[] parts = token.split("\\.");
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String payload = new String(decoder.decode(parts[1]), StandardCharsets.UTF_8)
+                .replace(EMAIL, "admin@example.com");
+        String tampered = parts[0] + "." + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8))
+                + "." + parts[2];
+
+        assertThrows(SignatureException.class, () -> jwtUtil.parseAndVerify(tampered));
+        assertEquals(EMAIL, jwtUtil.parseAndVerify(token).getSubject());
+    }
+
+    private static JwtUtil jwtUtil(long expiration) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "test-secret-with-at-least-thirty-two-bytes");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", expiration);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheMaxSize", 100L);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheTtl", Duration.ofMinutes(1));
+        jwtUtil.init();
+        return jwtUtil;
+    }
+}
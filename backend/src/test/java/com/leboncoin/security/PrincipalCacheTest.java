@@ -0,0 +1,66 @@
+package com.leboncoin.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PrincipalCacheTest {
+
+    private static final String EMAIL = "principal@example.com";
+
+    private final AtomicLong nanos = new AtomicLong();
+    private UserDetailsService userDetailsService;
+    private PrincipalCache cache;
+
+    @BeforeEach
+    void setUp() {
+        userDetailsService = mock(UserDetailsService.class);
+        when(userDetailsService.loadUserByUsername(EMAIL)).thenAnswer(invocation -> User.withUsername(EMAIL)
+                .password("{bcrypt}hash")
+                .authorities("ROLE_USER")
+                .build());
+        cache = new PrincipalCache(userDetailsService, 100, Duration.ofMinutes(5), nanos::get);
+    }
+
+    @Test
+    void principalIsLoadedOnceWithoutPassword() {
+        UserDetails first = cache.get(EMAIL);
+        UserDetails second = cache.get(EMAIL);
+
+        assertEquals(EMAIL, second.getUsername());
+        assertEquals("", first.getPassword());
+        verify(userDetailsService, times(1)).loadUserByUsername(EMAIL);
+    }
+
+    @Test
+    void credentialsChangeReloadsPrincipal() {
+        cache.get(EMAIL);
+        cache.onCredentialsChanged(new UserCredentialsChangedEvent(EMAIL));
+        cache.get(EMAIL);
+
+        verify(userDetailsService, times(2)).loadUserByUsername(EMAIL);
+    }
+
+    @Test
+    void principalIsReloadedAfterTtl() {
+        cache.get(EMAIL);
+        nanos.addAndGet(Duration.ofMinutes(4).toNanos());
+        cache.get(EMAIL);
+        verify(userDetailsService, times(1)).loadUserByUsername(EMAIL);
+
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+        cache.get(EMAIL);
+        verify(userDetailsService, times(2)).loadUserByUsername(EMAIL);
+    }
+}
@@ -0,0 +1,111 @@
+package com.leboncoin.security;
+
+import com.leboncoin.config.RateLimitProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitFilterTest {
+
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties.Rule login = new RateLimitProperties.Rule();
+        login.setName("login");
+        login.setPath("/api/auth/login");
+        login.setCapacity(2);
+        login.setRefillPeriod(Duration.ofMinutes(1));
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setRules(List.of(login));
+        filter = new RateLimitFilter(properties);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void exhaustedBucketAnswers429WithRetryAfter() throws Exception {
+        assertEquals(200, call("10.0.0.1").getStatus());
+        assertEquals(200, call("10.0.0.1").getStatus());
+
+        MockHttpServletResponse limited = call("10.0.0.1");
+
+        assertEquals(429, limited.getStatus());
+        // Un jeton toutes les 30 s
+        long retryAfter = Long.parseLong(limited.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(retryAfter > 0 && retryAfter <= 30, "Retry-After " + retryAfter);
+        assertEquals("Too many requests", limited.getContentAsString());
+    }
+
+    @Test
+    void limitedRequestDoesNotReachTheChain() throws Exception {
+        call("10.0.0.2");
+        call("10.0.0.2");
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request("10.0.0.2"), new MockHttpServletResponse(), chain);
+
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void eachClientAddressHasItsOwnBucket() throws Exception {
+        call("10.0.0.3");
+        call("10.0.0.3");
+
+        assertEquals(429, call("10.0.0.3").getStatus());
+        assertEquals(200, call("10.0.0.4").getStatus());
+    }
+
+    @Test
+    void authenticatedUserIsKeyedByNameNotAddress() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated("user@example.com", null, List.of()));
+        call("10.0.0.5");
+        call("10.0.0.6");
+
+        assertEquals(429, call("10.0.0.7").getStatus());
+    }
+
+    @Test
+    void otherRoutesAreNotLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest request = request("10.0.0.8");
+            request.setRequestURI("/api/ads");
+            request.setServletPath("/api/ads");
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+            assertNotNull(chain.getRequest());
+        }
+    }
+
+    private MockHttpServletResponse call(String remoteAddr) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(remoteAddr), response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setServletPath("/api/auth/login");
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+}
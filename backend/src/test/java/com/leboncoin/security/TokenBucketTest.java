@@ -0,0 +1,79 @@
+package com.leboncoin.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void fullBucketAllowsBurstThenReportsWait() {
+        // 2 jetons par 2 s : un jeton par seconde
+        TokenBucket bucket = new TokenBucket(2, 2 * SECOND, 0);
+
+        assertEquals(0, bucket.tryConsume(0));
+        assertEquals(0, bucket.tryConsume(0));
+        assertEquals(SECOND, bucket.tryConsume(0));
+        assertEquals(SECOND / 2, bucket.tryConsume(SECOND / 2));
+    }
+
+    @Test
+    void tokensRefillOverTimeUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(3, 3 * SECOND, 0);
+        for (int i = 0; i < 3; i++) {
+            bucket.tryConsume(0);
+        }
+
+        assertEquals(0, bucket.tryConsume(SECOND));
+        assertTrue(bucket.tryConsume(SECOND) > 0);
+
+        // Une longue inactivité ne dépasse pas la capacité
+        long later = 3600 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryConsume(later));
+        }
+        assertTrue(bucket.tryConsume(later) > 0);
+    }
+
+    @Test
+    void concurrentConsumersNeverExceedCapacity() throws Exception {
+        int capacity = 100;
+        TokenBucket bucket = new TokenBucket(capacity, 3600 * SECOND, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int granted = 0;
+                    for (int i = 0; i < 50; i++) {
+                        if (bucket.tryConsume(1) == 0) {
+                            granted++;
+                        }
+                    }
+                    return granted;
+                }));
+            }
+            start.countDown();
+            int granted = 0;
+            for (Future<Integer> result : results) {
+                granted += result.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(capacity, granted);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.leboncoin.service;
+
+import com.leboncoin.config.AdSearchProperties;
+import com.leboncoin.entity.CategoryEnum;
+import com.leboncoin.repository.AdIndexRow;
+import com.leboncoin.repository.AdRepository;
+import com.leboncoin.repository.AdSearchFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compare l'index en colonnes à un filtrage exhaustif d'une table de
+ * référence, sur des suites aléatoires d'écritures et de recherches.
+ */
+class AdFilterIndexTest {
+
+    private static final CategoryEnum[] CATEGORIES = CategoryEnum.values();
+
+    private AdRepository adRepository;
+    private AdFilterIndex index;
+    // Table de référence : id -> (prix, catégorie)
+    private final Map<Integer, AdIndexRow> ads = new TreeMap<>();
+
+    @BeforeEach
+    void setUp() {
+        adRepository = mock(AdRepository.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        AdSearchProperties properties = new AdSearchProperties();
+        properties.getIndex().setEnabled(true);
+        properties.getIndex().setSingleNode(true);
+        index = new AdFilterIndex(adRepository, transactionManager, properties);
+    }
+
+    @Test
+    void randomWritesMatchBruteForceSearch() {
+        for (long seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            ads.clear();
+            // Table initiale lacunaire : les ids intermédiaires passent par insertAt
+            for (int id = 1; id <= 1500; id += 1 + random.nextInt(3)) {
+                ads.put(id, randomRow(random, id));
+            }
+            rebuildFromTable();
+
+            for (int step = 0; step < 2000; step++) {
+                index.onAdChanged(randomWrite(random));
+                if (step % 50 == 0) {
+                    assertSameResults(random, seed);
+                }
+            }
+            assertSameResults(random, seed);
+        }
+    }
+
+    @Test
+    void writesCommittedDuringRebuildAreReplayed() {
+        for (long seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            ads.clear();
+            for (int id = 1; id <= 800; id++) {
+                if (random.nextInt(4) > 0) {
+                    ads.put(id, randomRow(random, id));
+                }
+            }
+            rebuildFromTable();
+            for (int step = 0; step < 200; step++) {
+                index.onAdChanged(randomWrite(random));
+            }
+
+            // Le parcours voit la table à son début ; les écritures validées pendant sont rejouées
+            List<AdIndexRow> snapshot = new ArrayList<>(ads.values());
+            when(adRepository.streamIndexRows()).thenAnswer(invocation -> snapshot.stream()
+                    .peek(row -> {
+                        if (random.nextInt(20) == 0) {
+                            index.onAdChanged(randomWrite(random));
+                        }
+                    }));
+            index.rebuild();
+
+            assertSameResults(random, seed);
+            for (int step = 0; step < 200; step++) {
+                index.onAdChanged(randomWrite(random));
+            }
+            assertSameResults(random, seed);
+        }
+    }
+
+    @Test
+    void enablingRequiresSingleNodeDeployment() {
+        AdSearchProperties properties = new AdSearchProperties();
+        properties.getIndex().setEnabled(true);
+
+        assertThrows(IllegalStateException.class,
+                () -> new AdFilterIndex(adRepository, mock(PlatformTransactionManager.class), properties));
+    }
+
+    private void rebuildFromTable() {
+        List<AdIndexRow> snapshot = new ArrayList<>(ads.values());
+        when(adRepository.streamIndexRows()).thenAnswer(invocation -> snapshot.stream());
+        index.rebuild();
+    }
+
+    // Applique l'écriture à la table de référence et retourne l'événement correspondant
+    private AdChangedEvent randomWrite(Random random) {
+        int id = 1 + random.nextInt(2000);
+        AdIndexRow previous = ads.get(id);
+        if (previous != null && random.nextInt(3) == 0) {
+            ads.remove(id);
+            return AdChangedEvent.deleted(id, previous.category(), previous.price());
+        }
+        AdIndexRow row = randomRow(random, id);
+        ads.put(id, row);
+        return previous == null
+                ? AdChangedEvent.created(id, row.category(), row.price())
+                : new AdChangedEvent(id, previous.category(), previous.price(), row.category(), row.price());
+    }
+
+    private static AdIndexRow randomRow(Random random, int id) {
+        Integer price = random.nextInt(10) == 0 ? null : random.nextInt(1000);
+        return new AdIndexRow(id, price, CATEGORIES[random.nextInt(CATEGORIES.length)]);
+    }
+
+    private void assertSameResults(Random random, long seed) {
+        for (int i = 0; i < 20; i++) {
+            CategoryEnum category = random.nextBoolean() ? CATEGORIES[random.nextInt(CATEGORIES.length)] : null;
+            Integer minPrice = random.nextBoolean() ? random.nextInt(1000) : null;
+            Integer maxPrice = random.nextBoolean() ? random.nextInt(1000) : null;
+            AdSearchFilter filter = new AdSearchFilter(category, null, minPrice, maxPrice);
+            long offset = random.nextInt(3) == 0 ? random.nextInt(200) : 0;
+            int limit = 1 + random.nextInt(50);
+
+            List<Integer> expected = bruteForce(filter);
+            AdFilterIndex.Hits hits = index.search(filter, offset, limit);
+
+            String context = "seed " + seed + ", filter " + category + " [" + minPrice + ", " + maxPrice + "]";
+            assertEquals(expected.size(), hits.total(), context);
+            assertEquals(expected.subList((int) Math.min(offset, expected.size()),
+                    (int) Math.min(offset + limit, expected.size())), hits.ids(), context);
+        }
+    }
+
+    private List<Integer> bruteForce(AdSearchFilter filter) {
+        boolean priceFiltered = filter.getMinPrice() != null || filter.getMaxPrice() != null;
+        return ads.values().stream()
+                .filter(row -> filter.getCategory() == null || row.category() == filter.getCategory())
+                .filter(row -> !priceFiltered || row.price() != null
+                        && (filter.getMinPrice() == null || row.price() >= filter.getMinPrice())
+                        && (filter.getMaxPrice() == null || row.price() <= filter.getMaxPrice()))
+                .map(AdIndexRow::id)
+                .sorted(Comparator.reverseOrder())
+                .toList();
+    }
+}
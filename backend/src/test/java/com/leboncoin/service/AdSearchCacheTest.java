@@ -0,0 +1,76 @@
+package com.leboncoin.service;
+
+import com.leboncoin.config.AdSearchProperties;
+import com.leboncoin.dto.AdDTO;
+import com.leboncoin.dto.AdImageMode;
+import com.leboncoin.dto.AdImageSize;
+import com.leboncoin.entity.CategoryEnum;
+import com.leboncoin.repository.AdSearchFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Une écriture validée pendant un chargement ne doit pas laisser en cache la
+ * page lue avant son commit.
+ */
+class AdSearchCacheTest {
+
+    private AdSearchCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache = new AdSearchCache(new AdSearchProperties(), new SimpleMeterRegistry());
+        loads.set(0);
+    }
+
+    @Test
+    void pageIsCachedWithoutConcurrentWrite() {
+        get(CategoryEnum.CAR, () -> { });
+        get(CategoryEnum.CAR, () -> { });
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void pageLoadedAcrossACommitIsNotKept() {
+        get(CategoryEnum.CAR, () -> cache.onAdChanged(AdChangedEvent.created(1, CategoryEnum.CAR, 100)));
+        get(CategoryEnum.CAR, () -> { });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void searchWithoutCategorySeesEveryCommit() {
+        get(null, () -> cache.onAdChanged(AdChangedEvent.created(1, CategoryEnum.BOOK, 100)));
+        get(null, () -> { });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void commitInAnotherCategoryKeepsThePage() {
+        get(CategoryEnum.CAR, () -> cache.onAdChanged(AdChangedEvent.created(1, CategoryEnum.BOOK, 100)));
+        get(CategoryEnum.CAR, () -> { });
+
+        assertEquals(1, loads.get());
+    }
+
+    private Page<AdDTO> get(CategoryEnum category, Runnable duringLoad) {
+        AdSearchFilter filter = new AdSearchFilter(category, null, null, null);
+        return cache.get(filter, PageRequest.of(0, 10), AdImageMode.ALL, AdImageSize.ORIGINAL, () -> {
+            loads.incrementAndGet();
+            duringLoad.run();
+            return new PageImpl<>(List.of());
+        });
+    }
+}
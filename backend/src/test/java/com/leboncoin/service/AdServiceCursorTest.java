@@ -0,0 +1,166 @@
+package com.leboncoin.service;
+
+import com.leboncoin.dto.AdDTO;
+import com.leboncoin.dto.AdImageMode;
+import com.leboncoin.dto.AdImageSize;
+import com.leboncoin.dto.AdSearchSort;
+import com.leboncoin.dto.CursorPageDTO;
+import com.leboncoin.entity.Ad;
+import com.leboncoin.entity.Category;
+import com.leboncoin.entity.CategoryEnum;
+import com.leboncoin.entity.User;
+import com.leboncoin.repository.AdRepository;
+import com.leboncoin.repository.CategoryRepository;
+import com.leboncoin.repository.SearchCapabilities;
+import com.leboncoin.repository.UserRepository;
+import com.leboncoin.storage.ImageVariant;
+import com.leboncoin.storage.ObjectStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest
+@Import({AdService.class, SearchCapabilities.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AdServiceCursorTest {
+
+    @Autowired
+    private AdService adService;
+
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockBean
+    private ObjectStorageService objectStorageService;
+
+    @MockBean
+    private AdSearchCache adSearchCache;
+
+    @MockBean
+    private AdFilterIndex adFilterIndex;
+
+    @MockBean
+    private StorageDeletionService storageDeletionService;
+
+    @MockBean
+    private ImageVariantService imageVariantService;
+
+    @MockBean
+    private ImageUrlService imageUrlService;
+
+    private final List<Ad> ads = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        adRepository.deleteAll();
+        Category car = categoryRepository.findByName(CategoryEnum.CAR)
+                .orElseGet(() -> categoryRepository.save(new Category(CategoryEnum.CAR)));
+        User seller = userRepository.findByEmail("cursor@example.com")
+                .orElseGet(() -> userRepository.save(new User("cursor@example.com", "hash")));
+        ads.clear();
+        // Prix en double et prix absents, mélangés dans l'ordre des ids
+        Integer[] prices = {300, null, 100, 200, null, 100, 500, null, 200, 400};
+        for (Integer price : prices) {
+            ads.add(adRepository.save(new Ad("Ad", "Description", price, car, seller)));
+        }
+    }
+
+    @Test
+    void malformedCursorIsABadRequest() {
+        for (String cursor : List.of("%%%", "bm90LWEtY3Vyc29y", encodedFor(AdSearchSort.ID))) {
+            ResponseStatusException error = assertThrows(ResponseStatusException.class,
+                    () -> adService.searchAdsByCursor(null, null, null, null, AdSearchSort.PRICE_ASC, cursor, 5,
+                            AdImageMode.NONE, AdImageSize.ORIGINAL));
+            assertEquals(HttpStatus.BAD_REQUEST, error.getStatusCode());
+        }
+    }
+
+    @Test
+    void unknownCategoryIsABadRequest() {
+        ResponseStatusException error = assertThrows(ResponseStatusException.class,
+                () -> adService.searchAdsByCursor("SPACESHIP", null, null, null, AdSearchSort.RECENT, "", 5,
+                        AdImageMode.NONE, AdImageSize.ORIGINAL));
+        assertEquals(HttpStatus.BAD_REQUEST, error.getStatusCode());
+        assertEquals(ads.size(), adService.searchAdsByCursor(" CAR ", null, null, null, AdSearchSort.RECENT, "", 20,
+                AdImageMode.NONE, AdImageSize.ORIGINAL).getContent().size());
+    }
+
+    @Test
+    void priceSortsListAdsWithoutPriceLast() {
+        Comparator<Ad> byId = Comparator.comparing(Ad::getId);
+        for (AdSearchSort sort : List.of(AdSearchSort.PRICE_ASC, AdSearchSort.PRICE_DESC)) {
+            Comparator<Ad> priced = sort == AdSearchSort.PRICE_ASC
+                    ? Comparator.comparing(Ad::getPrice).thenComparing(byId)
+                    : Comparator.comparing(Ad::getPrice).thenComparing(byId).reversed();
+            Comparator<Ad> unpriced = sort == AdSearchSort.PRICE_ASC ? byId : byId.reversed();
+            List<Integer> expected = new ArrayList<>();
+            ads.stream().filter(ad -> ad.getPrice() != null).sorted(priced).forEach(ad -> expected.add(ad.getId()));
+            ads.stream().filter(ad -> ad.getPrice() == null).sorted(unpriced).forEach(ad -> expected.add(ad.getId()));
+
+            // 7 : la page se termine pile sur la dernière annonce avec prix
+            for (int size : new int[]{1, 3, 7, 20}) {
+                assertEquals(expected, scrollAll(sort, size), sort + " by " + size);
+            }
+        }
+    }
+
+    @Test
+    void onlyRequestedImageSizeIsSigned() {
+        CursorPageDTO<AdDTO> page = adService.searchAdsByCursor(null, null, null, null, AdSearchSort.RECENT, "", 5,
+                AdImageMode.ALL, AdImageSize.THUMB);
+
+        assertEquals(5, page.getContent().size());
+        page.getContent().forEach(ad -> {
+            assertNull(ad.getImages());
+            assertNull(ad.getMediumImages());
+        });
+        verify(imageVariantService, times(5)).urls(anyList(), eq(ImageVariant.THUMB));
+        verify(imageVariantService, never()).urls(anyList(), eq(ImageVariant.MEDIUM));
+        verify(imageUrlService, never()).urls(anyList());
+    }
+
+    private List<Integer> scrollAll(AdSearchSort sort, int size) {
+        List<Integer> ids = new ArrayList<>();
+        String cursor = "";
+        CursorPageDTO<AdDTO> page;
+        do {
+            page = adService.searchAdsByCursor(null, null, null, null, sort, cursor, size, AdImageMode.NONE, AdImageSize.ORIGINAL);
+            page.getContent().forEach(ad -> ids.add(ad.getId()));
+            cursor = page.getNextCursor();
+        } while (page.isHasNext());
+        return ids;
+    }
+
+    private String encodedFor(AdSearchSort sort) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((sort.name() + "|1|1").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,156 @@
+package com.leboncoin.service;
+
+import com.leboncoin.dto.AdDTO;
+import com.leboncoin.entity.Category;
+import com.leboncoin.entity.CategoryEnum;
+import com.leboncoin.entity.User;
+import com.leboncoin.repository.CategoryRepository;
+import com.leboncoin.repository.SearchCapabilities;
+import com.leboncoin.repository.UserRepository;
+import com.leboncoin.storage.ObjectStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Les vérifications d'images au stockage doivent avoir lieu avant la
+ * transaction d'écriture, jamais pendant.
+ */
+@DataJpaTest
+@Import({AdService.class, SearchCapabilities.class, AdServiceStorageTest.RecordingStorage.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AdServiceStorageTest {
+
+    private static final String SELLER = "seller@example.com";
+
+    @Autowired
+    private AdService adService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private List<StorageCall> storageCalls;
+
+    @MockBean
+    private AdSearchCache adSearchCache;
+
+    @MockBean
+    private AdFilterIndex adFilterIndex;
+
+    @MockBean
+    private StorageDeletionService storageDeletionService;
+
+    @MockBean
+    private ImageVariantService imageVariantService;
+
+    @MockBean
+    private ImageUrlService imageUrlService;
+
+    @BeforeEach
+    void setUp() {
+        storageCalls.clear();
+        if (categoryRepository.findByName(CategoryEnum.CAR).isEmpty()) {
+            categoryRepository.save(new Category(CategoryEnum.CAR));
+            userRepository.save(new User(SELLER, "hash"));
+        }
+    }
+
+    @Test
+    void createAdsVerifiesImagesOutsideTheTransaction() {
+        adService.createAds(List.of(ad("ads/sha256/aa/a.jpg", "ads/sha256/bb/b.jpg"), ad("ads/sha256/cc/c.jpg")),
+                SELLER);
+
+        assertFalse(storageCalls.isEmpty());
+        storageCalls.forEach(call -> assertFalse(call.inTransaction(), call.method() + " ran inside a transaction"));
+        assertEquals(Set.of("ads/sha256/aa/a.jpg", "ads/sha256/bb/b.jpg", "ads/sha256/cc/c.jpg"),
+                Set.copyOf(verifiedKeys()));
+    }
+
+    @Test
+    void updateAdOnlyVerifiesKeysNoAdReferencesYet() {
+        AdDTO created = adService.createAd(ad("ads/sha256/dd/d.jpg"), SELLER);
+        storageCalls.clear();
+
+        adService.updateAd(created.getId(), ad("ads/sha256/dd/d.jpg", "ads/sha256/ee/e.jpg"), SELLER);
+
+        storageCalls.forEach(call -> assertFalse(call.inTransaction(), call.method() + " ran inside a transaction"));
+        assertEquals(List.of("ads/sha256/ee/e.jpg"), verifiedKeys());
+    }
+
+    @Test
+    void sharedKeyAlreadyReferencedIsNotVerifiedAgain() {
+        adService.createAd(ad("ads/sha256/ff/f.jpg"), SELLER);
+        storageCalls.clear();
+
+        adService.createAd(ad("ads/sha256/ff/f.jpg"), SELLER);
+
+        assertTrue(verifiedKeys().isEmpty());
+    }
+
+    private List<String> verifiedKeys() {
+        return storageCalls.stream()
+                .filter(call -> call.method().equals("verifyStoredImages"))
+                .flatMap(call -> call.objectNames().stream())
+                .toList();
+    }
+
+    private static AdDTO ad(String... images) {
+        AdDTO dto = new AdDTO();
+        dto.setTitle("Ad");
+        dto.setDescription("Description");
+        dto.setPrice(100);
+        dto.setCategory(CategoryEnum.CAR);
+        dto.setImageObjectNames(List.of(images));
+        return dto;
+    }
+
+    record StorageCall(String method, Collection<String> objectNames, boolean inTransaction) {
+    }
+
+    @TestConfiguration
+    static class RecordingStorage {
+
+        @Bean
+        List<StorageCall> storageCalls() {
+            return new CopyOnWriteArrayList<>();
+        }
+
+        // Enregistre chaque appel au stockage et l'état transactionnel du thread appelant
+        @Bean
+        ObjectStorageService objectStorageService(List<StorageCall> storageCalls) {
+            return Mockito.mock(ObjectStorageService.class, invocation -> {
+                Object argument = invocation.getArguments().length > 0 ? invocation.getArgument(0) : null;
+                @SuppressWarnings("unchecked")
+                Collection<String> objectNames = argument instanceof Collection<?> names
+                        ? List.copyOf((Collection<String>) names)
+                        : List.of();
+                storageCalls.add(new StorageCall(invocation.getMethod().getName(), objectNames,
+                        TransactionSynchronizationManager.isActualTransactionActive()));
+                return Answers.RETURNS_DEFAULTS.answer(invocation);
+            });
+        }
+    }
+}
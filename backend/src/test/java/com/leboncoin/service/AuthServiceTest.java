@@ -0,0 +1,80 @@
+package com.leboncoin.service;
+
+import com.leboncoin.dto.RegisterRequestDTO;
+import com.leboncoin.repository.SearchCapabilities;
+import com.leboncoin.repository.UserRepository;
+import com.leboncoin.security.JwtUtil;
+import com.leboncoin.security.PasswordHasher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Le hash bcrypt de l'inscription ne doit retenir aucune connexion.
+ */
+@DataJpaTest
+@Import({AuthService.class, SearchCapabilities.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AuthServiceTest {
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockBean
+    private PasswordHasher passwordHasher;
+
+    @MockBean
+    private JwtUtil jwtUtil;
+
+    private final List<Boolean> hashedInTransaction = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        when(passwordHasher.encode(anyString())).thenAnswer(invocation -> {
+            hashedInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return "hash";
+        });
+    }
+
+    @Test
+    void registerHashesOutsideAnyTransaction() {
+        authService.register(request("new@example.com"));
+
+        assertEquals(List.of(false), hashedInTransaction);
+        assertFalse(userRepository.findByEmail("new@example.com").isEmpty());
+    }
+
+    @Test
+    void duplicateEmailIsRejectedByTheUniqueConstraint() {
+        authService.register(request("twice@example.com"));
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> authService.register(request("twice@example.com")));
+
+        assertEquals("Email already exists", error.getMessage());
+        assertEquals(1, userRepository.count());
+    }
+
+    private static RegisterRequestDTO request(String email) {
+        return new RegisterRequestDTO(email, "password123");
+    }
+}
@@ -0,0 +1,81 @@
+package com.leboncoin.service;
+
+import com.leboncoin.config.StorageProperties;
+import com.leboncoin.entity.ImageVariantStatus;
+import com.leboncoin.repository.ImageVariantStatusRepository;
+import com.leboncoin.storage.ImageVariant;
+import com.leboncoin.storage.ObjectStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImageVariantServiceTest {
+
+    private ObjectStorageService objectStorageService;
+    private ImageVariantStatusRepository repository;
+    private ExecutorService executor;
+    private ImageVariantService service;
+
+    @BeforeEach
+    void setUp() {
+        objectStorageService = mock(ObjectStorageService.class);
+        repository = mock(ImageVariantStatusRepository.class);
+        executor = mock(ExecutorService.class);
+        ImageUrlService imageUrlService = mock(ImageUrlService.class);
+        when(imageUrlService.urls(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        service = new ImageVariantService(objectStorageService, imageUrlService, repository, executor,
+                new StorageProperties());
+    }
+
+    @Test
+    void pageIsLoadedWithASingleQuery() {
+        when(repository.findByObjectNameIn(anyCollection())).thenReturn(List.of(
+                new ImageVariantStatus("ads/sha256/aa/a.jpg"),
+                new ImageVariantStatus("ads/sha256/bb/b.gif", ImageVariantStatus.State.UNSUPPORTED)));
+
+        service.preload(Set.of("ads/sha256/aa/a.jpg", "ads/sha256/bb/b.gif"));
+        List<String> first = service.urls(List.of("ads/sha256/aa/a.jpg"), ImageVariant.THUMB);
+        List<String> second = service.urls(List.of("ads/sha256/bb/b.gif"), ImageVariant.THUMB);
+
+        verify(repository, times(1)).findByObjectNameIn(anyCollection());
+        assertEquals(List.of(ImageVariant.THUMB.objectName("ads/sha256/aa/a.jpg")), first);
+        assertEquals(List.of("ads/sha256/bb/b.gif"), second);
+    }
+
+    @Test
+    void legacyImageIsGeneratedOnceAndItsFailureIsKept() {
+        // Génération exécutée immédiatement, sur le thread appelant
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(executor).execute(any());
+        when(repository.findByObjectNameIn(anyCollection())).thenReturn(List.of());
+        when(objectStorageService.getObject("ads/sha256/cc/c.jpg"))
+                .thenReturn(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+
+        service.urls(List.of("ads/sha256/cc/c.jpg"), ImageVariant.THUMB);
+        List<String> urls = service.urls(List.of("ads/sha256/cc/c.jpg"), ImageVariant.MEDIUM);
+
+        ArgumentCaptor<ImageVariantStatus> saved = ArgumentCaptor.forClass(ImageVariantStatus.class);
+        verify(repository).save(saved.capture());
+        assertEquals(ImageVariantStatus.State.UNSUPPORTED, saved.getValue().getState());
+        verify(executor, times(1)).execute(any());
+        verify(repository, times(1)).findByObjectNameIn(anyCollection());
+        assertEquals(List.of("ads/sha256/cc/c.jpg"), urls);
+    }
+}
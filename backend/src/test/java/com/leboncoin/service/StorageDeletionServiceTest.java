@@ -0,0 +1,129 @@
+package com.leboncoin.service;
+
+import com.leboncoin.config.StorageProperties;
+import com.leboncoin.entity.Ad;
+import com.leboncoin.entity.Category;
+import com.leboncoin.entity.CategoryEnum;
+import com.leboncoin.entity.StorageDeletion;
+import com.leboncoin.entity.User;
+import com.leboncoin.repository.AdRepository;
+import com.leboncoin.repository.CategoryRepository;
+import com.leboncoin.repository.SearchCapabilities;
+import com.leboncoin.repository.StorageDeletionRepository;
+import com.leboncoin.repository.UserRepository;
+import com.leboncoin.storage.ObjectStorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Les suppressions au stockage ont lieu hors transaction, entre la
+ * réservation du lot et l'enregistrement du résultat.
+ */
+@DataJpaTest
+@Import(SearchCapabilities.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StorageDeletionServiceTest {
+
+    @Autowired
+    private StorageDeletionRepository storageDeletionRepository;
+
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ObjectStorageService objectStorageService;
+    private StorageDeletionService storageDeletionService;
+    private final List<Boolean> deletedInTransaction = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        adRepository.deleteAll();
+        storageDeletionRepository.deleteAll();
+        deletedInTransaction.clear();
+        objectStorageService = mock(ObjectStorageService.class);
+        ImageVariantService imageVariantService = mock(ImageVariantService.class);
+        when(imageVariantService.forget(anyCollection())).thenReturn(List.of());
+        storageDeletionService = new StorageDeletionService(storageDeletionRepository, adRepository,
+                objectStorageService, imageVariantService, mock(ObjectProvider.class), new StorageProperties(),
+                new SimpleMeterRegistry(), transactionManager);
+    }
+
+    @Test
+    void storageIsCalledOutsideAnyTransaction() {
+        storageDeletionRepository.saveAll(List.of(new StorageDeletion("ads/deleted.jpg"),
+                new StorageDeletion("ads/failing.jpg"), new StorageDeletion("ads/shared.jpg")));
+        Category category = categoryRepository.findByName(CategoryEnum.CAR)
+                .orElseGet(() -> categoryRepository.save(new Category(CategoryEnum.CAR)));
+        User seller = userRepository.findByEmail("outbox@example.com")
+                .orElseGet(() -> userRepository.save(new User("outbox@example.com", "hash")));
+        Ad ad = new Ad("Ad", "Description", 100, category, seller);
+        ad.setImages(new ArrayList<>(List.of("ads/shared.jpg")));
+        adRepository.save(ad);
+        when(objectStorageService.deleteObjects(any())).thenAnswer(invocation -> {
+            deletedInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+            Collection<String> objectNames = invocation.getArgument(0);
+            assertEquals(Set.of("ads/deleted.jpg", "ads/failing.jpg"), Set.copyOf(objectNames));
+            return Set.of("ads/failing.jpg");
+        });
+
+        assertEquals(3, storageDeletionService.processBatch());
+
+        assertEquals(List.of(false), deletedInTransaction);
+        List<StorageDeletion> remaining = storageDeletionRepository.findAll();
+        assertEquals(1, remaining.size());
+        StorageDeletion retry = remaining.get(0);
+        assertEquals("ads/failing.jpg", retry.getObjectName());
+        assertEquals(1, retry.getAttempts());
+        assertTrue(retry.getNextAttemptAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void claimedBatchIsNotPickedUpAgain() {
+        storageDeletionRepository.save(new StorageDeletion("ads/slow.jpg"));
+        when(objectStorageService.deleteObjects(any())).thenAnswer(invocation -> {
+            // Pendant l'appel au stockage, le lot est réservé : un autre worker n'y touche pas
+            deletedInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+            assertTrue(storageDeletionRepository.findAll().stream()
+                    .allMatch(deletion -> deletion.getNextAttemptAt().isAfter(LocalDateTime.now())));
+            return Set.of();
+        });
+
+        assertEquals(1, storageDeletionService.processBatch());
+
+        assertEquals(List.of(false), deletedInTransaction);
+        assertFalse(storageDeletionRepository.findAll().iterator().hasNext());
+        assertEquals(0, storageDeletionService.processBatch());
+    }
+}
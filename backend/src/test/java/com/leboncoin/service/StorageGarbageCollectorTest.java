@@ -0,0 +1,194 @@
+package com.leboncoin.service;
+
+import com.leboncoin.config.StorageProperties;
+import com.leboncoin.entity.Ad;
+import com.leboncoin.entity.Category;
+import com.leboncoin.entity.CategoryEnum;
+import com.leboncoin.entity.StorageDeletion;
+import com.leboncoin.entity.User;
+import com.leboncoin.repository.AdRepository;
+import com.leboncoin.repository.CategoryRepository;
+import com.leboncoin.repository.SearchCapabilities;
+import com.leboncoin.repository.StorageDeletionRepository;
+import com.leboncoin.repository.StorageGcCheckpointRepository;
+import com.leboncoin.repository.UserRepository;
+import com.leboncoin.storage.FilesystemObjectStorageService;
+import com.leboncoin.storage.LocalUrlSigner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Cycle complet du ramasse-miettes sur H2 et le stockage fichiers : seuls les
+ * objets anciens et non référencés partent à l'outbox, une seule fois, même
+ * quand le cycle est découpé en plusieurs exécutions.
+ */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:storage-gc;MODE=PostgreSQL;DB_CLOSE_DELAY=-1")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(SearchCapabilities.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StorageGarbageCollectorTest {
+
+    private static final String CHECKPOINT = "orphan-objects";
+
+    @TempDir
+    Path root;
+
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StorageDeletionRepository storageDeletionRepository;
+
+    @Autowired
+    private StorageGcCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private StorageProperties properties;
+    private FilesystemObjectStorageService storage;
+    private StorageDeletionService storageDeletionService;
+    private Category category;
+    private User seller;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        adRepository.deleteAll();
+        storageDeletionRepository.deleteAll();
+        checkpointRepository.deleteAll();
+        category = categoryRepository.findByName(CategoryEnum.CAR)
+                .orElseGet(() -> categoryRepository.save(new Category(CategoryEnum.CAR)));
+        seller = userRepository.findByEmail("gc@example.com")
+                .orElseGet(() -> userRepository.save(new User("gc@example.com", "hash")));
+
+        properties = new StorageProperties();
+        properties.getFilesystem().setRoot(root.toString());
+        properties.getGc().setGracePeriod(Duration.ofDays(1));
+        properties.getGc().setPageDelay(Duration.ZERO);
+        storage = new FilesystemObjectStorageService(properties, mock(LocalUrlSigner.class),
+                mock(ApplicationEventPublisher.class), storageDeletionRepository);
+        // ensureRoot() n'est appelé qu'au démarrage du conteneur
+        Files.createDirectories(root.resolve(".tmp"));
+        storageDeletionService = new StorageDeletionService(storageDeletionRepository, adRepository, storage,
+                mock(ImageVariantService.class), mock(ObjectProvider.class), properties, new SimpleMeterRegistry(),
+                transactionManager);
+    }
+
+    @Test
+    void onlyOldUnreferencedObjectsAreEnqueued() throws Exception {
+        putObject("ads/sha256/aa/orphan.jpg", Duration.ofDays(2));
+        putObject("ads/sha256/bb/referenced.jpg", Duration.ofDays(2));
+        putObject("ads/sha256/cc/young.jpg", Duration.ofHours(1));
+        putObject("uploads/tmp/abandoned.jpg", Duration.ofDays(3));
+        saveAd("ads/sha256/bb/referenced.jpg");
+
+        int orphans = collector().collect();
+
+        assertEquals(2, orphans);
+        assertEquals(Set.of("ads/sha256/aa/orphan.jpg", "uploads/tmp/abandoned.jpg"), enqueued());
+        assertNull(checkpointRepository.findById(CHECKPOINT).orElseThrow().getLastKey());
+    }
+
+    @Test
+    void interruptedRunsResumeAfterLastKey() throws Exception {
+        Random random = new Random(7);
+        List<String> keys = new ArrayList<>();
+        Set<String> expected = new TreeSet<>();
+        List<String> referenced = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            String prefix = i % 4 == 0 ? "uploads/tmp/" : "ads/sha256/%02x/".formatted(random.nextInt(8));
+            String key = prefix + "%08x.jpg".formatted(random.nextInt());
+            keys.add(key);
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    putObject(key, Duration.ofDays(2));
+                    expected.add(key);
+                }
+                case 1 -> {
+                    putObject(key, Duration.ofDays(2));
+                    referenced.add(key);
+                }
+                default -> putObject(key, Duration.ofMinutes(10));
+            }
+        }
+        saveAd(referenced.toArray(String[]::new));
+        properties.getGc().setMaxObjectsPerRun(7);
+        properties.getGc().setPageSize(3);
+        StorageGarbageCollector collector = collector();
+
+        List<String> sortedKeys = keys.stream().sorted().toList();
+        int runs = 0;
+        int orphans = 0;
+        String lastKey;
+        do {
+            orphans += collector.collect();
+            runs++;
+            lastKey = checkpointRepository.findById(CHECKPOINT).orElseThrow().getLastKey();
+            if (lastKey != null) {
+                // Chaque exécution s'arrête exactement après son budget de clés
+                assertEquals(sortedKeys.get(runs * 7 - 1), lastKey, "run " + runs);
+            }
+            assertTrue(runs < 20, "cycle never completed");
+        } while (lastKey != null);
+
+        assertEquals(expected.size(), orphans);
+        assertEquals(expected, enqueued());
+        assertEquals(expected.size(), storageDeletionRepository.count(), "an orphan was enqueued twice");
+    }
+
+    private StorageGarbageCollector collector() {
+        return new StorageGarbageCollector(adRepository, checkpointRepository, storageDeletionService, storage,
+                properties, new SimpleMeterRegistry(), transactionManager);
+    }
+
+    private void putObject(String key, Duration age) throws Exception {
+        storage.putObject(key, new byte[]{1}, "image/jpeg");
+        Files.setLastModifiedTime(root.resolve(key), FileTime.from(Instant.now().minus(age)));
+    }
+
+    private void saveAd(String... images) {
+        Ad ad = new Ad("Ad", "Description", 100, category, seller);
+        ad.setImages(new ArrayList<>(List.of(images)));
+        adRepository.save(ad);
+    }
+
+    private Set<String> enqueued() {
+        Set<String> objectNames = new TreeSet<>();
+        storageDeletionRepository.findAll().stream().map(StorageDeletion::getObjectName).forEach(objectNames::add);
+        return objectNames;
+    }
+}
@@ -0,0 +1,72 @@
+package com.leboncoin.storage;
+
+import com.leboncoin.config.StorageProperties;
+import com.leboncoin.repository.StorageDeletionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class FilesystemObjectStorageServiceTest {
+
+    @TempDir
+    Path root;
+
+    private FilesystemObjectStorageService storage;
+
+    @BeforeEach
+    void setUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.getFilesystem().setRoot(root.toString());
+        storage = new FilesystemObjectStorageService(properties, mock(LocalUrlSigner.class),
+                mock(ApplicationEventPublisher.class), mock(StorageDeletionRepository.class));
+        storage.ensureRoot();
+    }
+
+    @Test
+    void pagesFollowKeyOrderAcrossDirectories() {
+        List<String> keys = new ArrayList<>(List.of(
+                // "a-b" précède "a/x" dans l'ordre des clés, pas dans celui des noms de répertoires
+                "ads/a-b", "ads/a/x", "ads/a/y/z", "ads/a.jpg", "ads/b", "uploads/tmp/c"));
+        Random random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            keys.add("ads/sha256/%02x/%08x.jpg".formatted(random.nextInt(256), random.nextInt()));
+        }
+        keys.forEach(key -> storage.putObject(key, new byte[]{1}, "image/jpeg"));
+
+        List<String> expected = keys.stream().filter(key -> key.startsWith("ads/")).distinct().sorted().toList();
+
+        for (int pageSize : new int[]{1, 7, 50, 1000}) {
+            List<String> listed = new ArrayList<>();
+            String startAfter = null;
+            List<StoredObject> page;
+            do {
+                page = storage.listObjects("ads/", startAfter, pageSize);
+                page.forEach(object -> listed.add(object.objectName()));
+                startAfter = page.isEmpty() ? startAfter : page.get(page.size() - 1).objectName();
+            } while (page.size() == pageSize);
+
+            assertEquals(expected, listed, "page size " + pageSize);
+        }
+    }
+
+    @Test
+    void prefixWithoutTrailingSlashOnlyListsMatchingKeys() {
+        List.of("ads/sha256/ab/1.jpg", "ads/sha256/ac/2.jpg", "ads/other").forEach(
+                key -> storage.putObject(key, new byte[]{1}, "image/jpeg"));
+
+        List<String> listed = storage.listObjects("ads/sha256/a", null, 10).stream()
+                .map(StoredObject::objectName)
+                .toList();
+
+        assertEquals(List.of("ads/sha256/ab/1.jpg", "ads/sha256/ac/2.jpg"), listed);
+    }
+}
@@ -0,0 +1,81 @@
+package com.leboncoin.storage;
+
+import com.leboncoin.config.StorageProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Un objet supprimé par un autre nœud ne doit plus être servi depuis le
+ * cache local une fois le délai de revalidation écoulé.
+ */
+class ImageDiskCacheTest {
+
+    private static final String KEY = "ads/sha256/ab/abcdef.jpg";
+
+    @TempDir
+    Path directory;
+
+    private ObjectStorageService objectStorageService;
+    private StorageProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        objectStorageService = mock(ObjectStorageService.class);
+        when(objectStorageService.getObject(KEY)).thenAnswer(invocation -> new ByteArrayInputStream(new byte[]{1, 2}));
+        properties = new StorageProperties();
+        properties.getProxy().setCacheDirectory(directory.toString());
+    }
+
+    @Test
+    void freshEntryIsServedWithoutCheckingStorage() {
+        properties.getProxy().setRevalidateAfter(Duration.ofHours(1));
+        ImageDiskCache cache = cache();
+
+        cache.get(KEY);
+        Path cached = cache.get(KEY);
+
+        assertTrue(Files.exists(cached));
+        verify(objectStorageService, never()).objectExists(KEY);
+    }
+
+    @Test
+    void entryDeletedElsewhereIsEvictedOnRevalidation() {
+        properties.getProxy().setRevalidateAfter(Duration.ZERO);
+        ImageDiskCache cache = cache();
+        Path cached = cache.get(KEY);
+        when(objectStorageService.objectExists(KEY)).thenReturn(false);
+
+        assertThrows(ObjectNotFoundException.class, () -> cache.get(KEY));
+        assertFalse(Files.exists(cached));
+    }
+
+    @Test
+    void filesFoundAtStartupAreRevalidatedFirst() {
+        properties.getProxy().setRevalidateAfter(Duration.ofHours(1));
+        cache().get(KEY);
+        ImageDiskCache restarted = cache();
+        when(objectStorageService.objectExists(KEY)).thenReturn(false);
+
+        assertThrows(ObjectNotFoundException.class, () -> restarted.get(KEY));
+    }
+
+    private ImageDiskCache cache() {
+        ImageDiskCache cache = new ImageDiskCache(objectStorageService, properties);
+        cache.load();
+        return cache;
+    }
+}